@@ -0,0 +1,51 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.hogwarts.school.dto.StudentDto;
+import ru.hogwarts.school.model.Student;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Перекладывание сущностей в DTO и обратно на больших коллекциях: то, что делают getAll и getPage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DtoMappingBenchmark {
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    private List<Student> students;
+    private List<StudentDto> studentDtos;
+
+    @Setup
+    public void setUp() {
+        students = LongStream.rangeClosed(1, size)
+                .mapToObj(id -> {
+                    Student student = new Student();
+                    student.setId(id);
+                    student.setName("Student" + id);
+                    student.setAge((int) (11 + id % 8));
+                    return student;
+                })
+                .toList();
+        studentDtos = students.stream().map(StudentDto::toDto).toList();
+    }
+
+    @Benchmark
+    public List<StudentDto> studentToDto() {
+        return students.stream().map(StudentDto::toDto).toList();
+    }
+
+    @Benchmark
+    public List<Student> studentToEntity() {
+        return studentDtos.stream().map(StudentDto::toEntity).toList();
+    }
+}
@@ -0,0 +1,72 @@
+package ru.hogwarts.school.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.hogwarts.school.SchoolApplication;
+import ru.hogwarts.school.model.Faculty;
+import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Приложение без веб-сервера на H2 в памяти (режим совместимости с PostgreSQL) для бенчмарков сервисов.
+ * Схема создаётся Hibernate: миграции Liquibase написаны под PostgreSQL. Логи сервисов выключены,
+ * чтобы замерялся код, а не вывод в консоль.
+ */
+final class EmbeddedSchool {
+
+    private static final String[] FACULTIES = {"Gryffindor", "Hufflepuff", "Ravenclaw", "Slytherin"};
+    private static final int INSERT_CHUNK = 1000;
+
+    private EmbeddedSchool() {
+    }
+
+    static ConfigurableApplicationContext start() {
+        // аргументы командной строки, а не properties(): значения по умолчанию проиграли бы application.properties
+        return new SpringApplicationBuilder(SchoolApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:school;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.liquibase.enabled=false",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=warn",
+                        "--logging.level.ru.hogwarts.school.service=warn");
+    }
+
+    // одинаковые данные в каждом запуске: имена и возраст из Random с фиксированным seed
+    static void populate(ConfigurableApplicationContext context, int studentCount) {
+        FacultyRepository facultyRepository = context.getBean(FacultyRepository.class);
+        StudentRepository studentRepository = context.getBean(StudentRepository.class);
+
+        List<Faculty> faculties = new ArrayList<>();
+        for (String name : FACULTIES) {
+            Faculty faculty = new Faculty();
+            faculty.setName(name);
+            faculty.setColor("color of " + name);
+            faculties.add(faculty);
+        }
+        faculties = facultyRepository.saveAll(faculties);
+
+        Random random = new Random(42);
+        List<Student> chunk = new ArrayList<>(INSERT_CHUNK);
+        for (int i = 0; i < studentCount; i++) {
+            Student student = new Student();
+            student.setName((char) ('A' + random.nextInt(26)) + "student" + i);
+            student.setAge(11 + random.nextInt(8));
+            student.setFaculty(faculties.get(random.nextInt(faculties.size())));
+            chunk.add(student);
+            if (chunk.size() == INSERT_CHUNK) {
+                studentRepository.saveAll(chunk);
+                chunk.clear();
+            }
+        }
+        studentRepository.saveAll(chunk);
+    }
+}
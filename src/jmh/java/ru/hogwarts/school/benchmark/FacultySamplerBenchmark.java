@@ -0,0 +1,73 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.hogwarts.school.cache.FacultyCache;
+import ru.hogwarts.school.cache.FacultySelectionStrategy;
+import ru.hogwarts.school.dto.FacultyDto;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Выбор факультета для нового студента в зависимости от числа факультетов.
+ * orderByRandom повторяет то, что делал ORDER BY RANDOM() LIMIT 1: случайный ключ для каждой строки
+ * и поиск минимального - время растёт вместе с таблицей. Выбор из кэша от размера не зависит.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FacultySamplerBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int facultyCount;
+
+    private List<FacultyDto> faculties;
+    private FacultyCache uniformCache;
+    private FacultyCache balancedCache;
+
+    @Setup
+    public void setUp() {
+        faculties = LongStream.rangeClosed(1, facultyCount)
+                .mapToObj(id -> new FacultyDto(id, "Faculty" + id, "Color", new ArrayList<>()))
+                .toList();
+        uniformCache = new FacultyCache(facultyCount, Duration.ofHours(1), FacultySelectionStrategy.UNIFORM);
+        balancedCache = new FacultyCache(facultyCount, Duration.ofHours(1), FacultySelectionStrategy.BALANCED);
+        // первый вызов загружает список, дальше замеряются только попадания
+        uniformCache.getRandom(limit -> faculties, Map::of, Optional::empty);
+        balancedCache.getRandom(limit -> faculties, Map::of, Optional::empty);
+    }
+
+    @Benchmark
+    public Optional<FacultyDto> cachedUniform() {
+        return uniformCache.getRandom(limit -> faculties, Map::of, Optional::empty);
+    }
+
+    @Benchmark
+    public Optional<FacultyDto> cachedBalanced() {
+        return balancedCache.getRandom(limit -> faculties, Map::of, Optional::empty);
+    }
+
+    @Benchmark
+    public FacultyDto orderByRandom() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        FacultyDto result = null;
+        double min = Double.MAX_VALUE;
+        for (FacultyDto faculty : faculties) {
+            double key = random.nextDouble();
+            if (key < min) {
+                min = key;
+                result = faculty;
+            }
+        }
+        return result;
+    }
+}
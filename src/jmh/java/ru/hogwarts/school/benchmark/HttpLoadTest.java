@@ -0,0 +1,103 @@
+package ru.hogwarts.school.benchmark;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Нагрузочный тест запущенного приложения: clients потоков без пауз шлют GET на url в течение duration.
+ * Первые 10% времени - прогрев, они не учитываются. Ошибкой считается любой ответ вне 2xx и исключение клиента.
+ * Печатает пропускную способность и перцентили задержки, чтобы сравнить пул потоков Tomcat
+ * с виртуальными потоками (spring.threads.virtual.enabled) на одной машине.
+ * Аргументы: url [clients=200] [duration=30s]
+ */
+public class HttpLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        URI uri = URI.create(args[0]);
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        Duration duration = args.length > 2 ? DurationStyle.detectAndParse(args[2]) : Duration.ofSeconds(30);
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+
+        long start = System.nanoTime();
+        long measureFrom = start + duration.toNanos() / 10;
+        long end = start + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+        List<long[]> latencies = new ArrayList<>(clients);
+        List<Thread> threads = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            LatencyRecorder recorder = new LatencyRecorder();
+            Thread thread = new Thread(() -> {
+                while (System.nanoTime() < end) {
+                    long sent = System.nanoTime();
+                    boolean failed;
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        failed = response.statusCode() / 100 != 2;
+                    } catch (Exception e) {
+                        failed = true;
+                    }
+                    if (sent >= measureFrom) {
+                        recorder.add(System.nanoTime() - sent);
+                        if (failed) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                }
+                synchronized (latencies) {
+                    latencies.add(recorder.toArray());
+                }
+            }, "load-client-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        double seconds = (end - measureFrom) / 1e9;
+        System.out.printf("%s, %d clients, %s%n", uri, clients, duration);
+        System.out.printf("requests: %d, errors: %d, throughput: %.1f req/s%n", all.length, errors.get(), all.length / seconds);
+        System.out.printf("latency ms: p50 %.2f, p90 %.2f, p99 %.2f, max %.2f%n",
+                percentile(all, 50), percentile(all, 90), percentile(all, 99), percentile(all, 100));
+    }
+
+    private static double percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(sorted.length * percent / 100.0) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    // у каждого клиента свой массив: запись задержки не синхронизируется между потоками
+    private static final class LatencyRecorder {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
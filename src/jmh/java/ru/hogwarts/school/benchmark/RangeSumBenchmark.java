@@ -0,0 +1,67 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.hogwarts.school.service.RangeSumService;
+import ru.hogwarts.school.service.SumStrategy;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Способы посчитать сумму 1..n для get_some_value. parallelIntStream - прежняя реализация (общий ForkJoinPool
+ * и упаковка в Integer при reduce), forkJoin - RangeSumService на своём пуле, formula - O(1).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RangeSumBenchmark {
+
+    @Param({"1000000", "100000000"})
+    private int n;
+
+    private RangeSumService service;
+
+    @Setup
+    public void setUp() {
+        service = new RangeSumService(0, Duration.ofMinutes(1));
+    }
+
+    @TearDown
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public long sequentialLoop() {
+        long sum = 0;
+        for (long i = 1; i <= n; i++) {
+            sum += i;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public Integer parallelIntStream() {
+        return IntStream.rangeClosed(1, n).parallel().reduce(0, Integer::sum);
+    }
+
+    @Benchmark
+    public long parallelLongStream() {
+        return LongStream.rangeClosed(1, n).parallel().sum();
+    }
+
+    @Benchmark
+    public long forkJoin() {
+        return service.sum(1, n, SumStrategy.FORK_JOIN);
+    }
+
+    @Benchmark
+    public long formula() {
+        return service.sum(1, n, SumStrategy.FORMULA);
+    }
+}
@@ -0,0 +1,87 @@
+package ru.hogwarts.school.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.hogwarts.school.dto.KeysetPageDto;
+import ru.hogwarts.school.dto.StudentAnalyticsDto;
+import ru.hogwarts.school.dto.StudentDto;
+import ru.hogwarts.school.service.FacultyService;
+import ru.hogwarts.school.service.StudentService;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пайплайны StudentService на встроенной базе: полная выгрузка в список и потоком, первая и последняя
+ * страница keyset-пагинации и аналитика по GROUP BY. Время страниц от размера таблицы зависеть не должно.
+ * Студенты факультета читаются через FacultyService той же DTO-проекцией, что и в /faculty/students.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StudentServiceBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+    private static final String FACULTY_NAME = "Gryffindor";
+
+    @Param({"10000", "100000"})
+    private int studentCount;
+
+    private ConfigurableApplicationContext context;
+    private StudentService service;
+    private FacultyService facultyService;
+    private long lastPageAfterId;
+
+    @Setup
+    public void setUp() {
+        context = EmbeddedSchool.start();
+        EmbeddedSchool.populate(context, studentCount);
+        service = context.getBean(StudentService.class);
+        facultyService = context.getBean(FacultyService.class);
+        lastPageAfterId = service.getPage(0, 1).getContent().get(0).getId() + studentCount - PAGE_SIZE - 1;
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Collection<StudentDto> getAll() {
+        return service.getAll();
+    }
+
+    @Benchmark
+    public void streamAll(Blackhole blackhole) {
+        service.streamAll(blackhole::consume);
+    }
+
+    @Benchmark
+    public KeysetPageDto<StudentDto> firstPage() {
+        return service.getPage(0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public KeysetPageDto<StudentDto> lastPage() {
+        return service.getPage(lastPageAfterId, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Collection<StudentDto> facultyStudents() {
+        return facultyService.findStudentsByFacultyName(FACULTY_NAME);
+    }
+
+    @Benchmark
+    public KeysetPageDto<StudentDto> facultyStudentsFirstPage() {
+        return facultyService.findStudentsByFacultyNamePage(FACULTY_NAME, 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public StudentAnalyticsDto getAnalytics() {
+        return service.getAnalytics();
+    }
+}
@@ -0,0 +1,73 @@
+package ru.hogwarts.school.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.helpers.NOPLogger;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение превью аватарки (чтение файла, масштабирование до 100 px, кодирование) для картинок разного
+ * размера. Лежит в пакете сервиса, потому что generatePreview не публичный.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AvatarPreviewBenchmark {
+
+    @Param({"256", "1024", "4096"})
+    private int width;
+
+    @Param({"jpg", "png"})
+    private String format;
+
+    private AvatarPreviewService service;
+    private Path folder;
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        service = new AvatarPreviewService(null, null, null, 1, 1, 1, Duration.ZERO, false);
+        // без Spring logback пишет всё от DEBUG: замерялся бы вывод в консоль
+        service.log = NOPLogger.NOP_LOGGER;
+        folder = Files.createTempDirectory("avatar-preview-benchmark");
+        file = folder.resolve("avatar." + format);
+        ImageIO.write(sampleImage(width, width * 3 / 4), format, file.toFile());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        service.shutdown();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(folder);
+    }
+
+    @Benchmark
+    public byte[] generatePreview() throws IOException {
+        return service.generatePreview(file);
+    }
+
+    // градиент с шумом: однотонная картинка сжималась бы нереально хорошо
+    private static BufferedImage sampleImage(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = x * 255 / width;
+                int g = y * 255 / height;
+                int b = random.nextInt(64);
+                image.setRGB(x, y, r << 16 | g << 8 | b);
+            }
+        }
+        return image;
+    }
+}
@@ -0,0 +1,176 @@
+package ru.hogwarts.school.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.dto.CacheStatsDto;
+import ru.hogwarts.school.dto.FacultyDto;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Кэш факультетов в памяти приложения: поиск по id, по имени (без учёта регистра) и случайный выбор.
+ * Записи живут не дольше ttl, по id и по имени хранится не больше maxSize записей (LRU).
+ * Для случайного выбора держится полный список факультетов ({@link FacultySampler}), если их
+ * не больше maxSize. maxSize = 0 выключает кэш. Любое изменение факультетов должно вызывать {@link #invalidate()},
+ * изменение числа студентов на факультетах в обход случайного выбора - {@link #invalidateStudentCounts()}.
+ */
+@Component
+public class FacultyCache {
+
+    Logger log = LoggerFactory.getLogger(FacultyCache.class);
+
+    private final int maxSize;
+    private final long ttlNanos;
+
+    private final Map<Long, Entry<FacultyDto>> byId;
+    private final Map<String, Entry<FacultyDto>> byName;
+    private final FacultySelectionStrategy strategy;
+    private Entry<FacultySampler> sampler;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    // загрузка, начатая до invalidate(), не должна положить в кэш старые данные
+    private long generation;
+
+    public FacultyCache(@Value("${faculty.cache.max-size}") int maxSize,
+                        @Value("${faculty.cache.ttl}") Duration ttl,
+                        @Value("${faculty.random.strategy}") FacultySelectionStrategy strategy) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.strategy = strategy;
+        this.byId = lruMap(maxSize);
+        this.byName = lruMap(maxSize);
+    }
+
+    public Optional<FacultyDto> getById(long id, Function<Long, Optional<FacultyDto>> loader) {
+        return get(byId, id, loader);
+    }
+
+    public Optional<FacultyDto> getByName(String name, Function<String, Optional<FacultyDto>> loader) {
+        return get(byName, name.toLowerCase(), loader);
+    }
+
+    /**
+     * Случайный факультет из закэшированного списка за O(1) по настроенной стратегии.
+     * loader получает лимит maxSize + 1: если факультетов больше maxSize (или кэш выключен),
+     * список не кэшируется и факультет выбирает fallback. countLoader (число студентов
+     * по id факультета) вызывается только для стратегии BALANCED.
+     */
+    public Optional<FacultyDto> getRandom(IntFunction<List<FacultyDto>> loader,
+                                          Supplier<Map<Long, Long>> countLoader,
+                                          Supplier<Optional<FacultyDto>> fallback) {
+        FacultySampler current = maxSize == 0 ? null : getSampler(loader, countLoader);
+        if (current == null) {
+            return fallback.get();
+        }
+        if (current.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(copy(current.pick(strategy)));
+    }
+
+    public synchronized void invalidate() {
+        generation++;
+        byId.clear();
+        byName.clear();
+        sampler = null;
+        log.debug("Faculty cache invalidated");
+    }
+
+    // счётчики BALANCED знают только о студентах, распределённых через getRandom: после создания
+    // на выбранном факультете, перевода или удаления список со счётчиками загружается заново
+    public synchronized void invalidateStudentCounts() {
+        if (strategy != FacultySelectionStrategy.BALANCED) {
+            return;
+        }
+        generation++;
+        sampler = null;
+        log.debug("Faculty student counts invalidated");
+    }
+
+    public synchronized CacheStatsDto getStats() {
+        int size = byId.size() + byName.size() + (sampler == null ? 0 : sampler.value().size());
+        return new CacheStatsDto(hits.get(), misses.get(), size);
+    }
+
+    private <K> Optional<FacultyDto> get(Map<K, Entry<FacultyDto>> map, K key, Function<K, Optional<FacultyDto>> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            Entry<FacultyDto> entry = map.get(key);
+            if (entry != null && !entry.isExpired()) {
+                hits.incrementAndGet();
+                return Optional.of(copy(entry.value()));
+            }
+            loadGeneration = generation;
+        }
+        misses.incrementAndGet();
+
+        // в базу идём без блокировки, чтобы промах по одному ключу не задерживал остальные
+        Optional<FacultyDto> loaded = loader.apply(key);
+        if (loaded.isPresent() && maxSize > 0) {
+            synchronized (this) {
+                if (loadGeneration == generation) {
+                    map.put(key, new Entry<>(copy(loaded.get()), System.nanoTime() + ttlNanos));
+                }
+            }
+        }
+        return loaded.map(FacultyCache::copy);
+    }
+
+    private FacultySampler getSampler(IntFunction<List<FacultyDto>> loader, Supplier<Map<Long, Long>> countLoader) {
+        long loadGeneration;
+        synchronized (this) {
+            if (sampler != null && !sampler.isExpired()) {
+                hits.incrementAndGet();
+                return sampler.value();
+            }
+            loadGeneration = generation;
+        }
+        misses.incrementAndGet();
+
+        List<FacultyDto> loaded = loader.apply(maxSize + 1);
+        if (loaded.size() > maxSize) {
+            return null;
+        }
+        Map<Long, Long> studentCounts = strategy == FacultySelectionStrategy.BALANCED ? countLoader.get() : Map.of();
+        FacultySampler loadedSampler = new FacultySampler(loaded, studentCounts);
+        synchronized (this) {
+            if (loadGeneration == generation) {
+                sampler = new Entry<>(loadedSampler, System.nanoTime() + ttlNanos);
+            }
+        }
+        return loadedSampler;
+    }
+
+    private static FacultyDto copy(FacultyDto dto) {
+        FacultyDto copy = new FacultyDto(dto.getId(), dto.getName(), dto.getColor(), new ArrayList<>());
+        copy.setVersion(dto.getVersion());
+        return copy;
+    }
+
+    private static <K, V> Map<K, V> lruMap(int maxSize) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+        boolean isExpired() {
+            return System.nanoTime() - expiresAt > 0;
+        }
+    }
+}
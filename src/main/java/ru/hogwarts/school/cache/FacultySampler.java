@@ -0,0 +1,69 @@
+package ru.hogwarts.school.cache;
+
+import ru.hogwarts.school.dto.FacultyDto;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Неизменяемый список факультетов с выбором за O(1), независимо от их количества.
+ * Для {@link FacultySelectionStrategy#BALANCED} хранит число студентов на факультете
+ * и увеличивает его при каждом выборе, так что новые студенты распределяются равномерно
+ * и между обновлениями списка. Пока факультетов не больше {@value #FULL_SCAN_LIMIT},
+ * выбирается самый малочисленный, дальше - меньший из двух случайных.
+ */
+public class FacultySampler {
+
+    static final int FULL_SCAN_LIMIT = 16;
+
+    private final List<FacultyDto> faculties;
+    private final AtomicLongArray studentCounts;
+
+    public FacultySampler(List<FacultyDto> faculties, Map<Long, Long> studentCounts) {
+        this.faculties = List.copyOf(faculties);
+        this.studentCounts = new AtomicLongArray(this.faculties.size());
+        for (int i = 0; i < this.faculties.size(); i++) {
+            this.studentCounts.set(i, studentCounts.getOrDefault(this.faculties.get(i).getId(), 0L));
+        }
+    }
+
+    public int size() {
+        return faculties.size();
+    }
+
+    public boolean isEmpty() {
+        return faculties.isEmpty();
+    }
+
+    public FacultyDto pick(FacultySelectionStrategy strategy) {
+        return strategy == FacultySelectionStrategy.BALANCED ? pickBalanced() : pickUniform();
+    }
+
+    private FacultyDto pickUniform() {
+        return faculties.get(ThreadLocalRandom.current().nextInt(faculties.size()));
+    }
+
+    private FacultyDto pickBalanced() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int size = faculties.size();
+        int chosen = random.nextInt(size);
+        if (size <= FULL_SCAN_LIMIT) {
+            // обход со случайного места, чтобы при равенстве не выбирался всегда первый
+            for (int i = 1; i < size; i++) {
+                int candidate = (chosen + i) % size;
+                if (studentCounts.get(candidate) < studentCounts.get(chosen)) {
+                    chosen = candidate;
+                }
+            }
+        } else {
+            int second = random.nextInt(size);
+            if (studentCounts.get(second) < studentCounts.get(chosen)) {
+                chosen = second;
+            }
+        }
+        studentCounts.incrementAndGet(chosen);
+        return faculties.get(chosen);
+    }
+}
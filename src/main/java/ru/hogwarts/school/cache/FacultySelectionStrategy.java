@@ -0,0 +1,9 @@
+package ru.hogwarts.school.cache;
+
+public enum FacultySelectionStrategy {
+    // любой факультет с равной вероятностью
+    UNIFORM,
+    // факультет, где меньше студентов: при числе факультетов до FacultySampler.FULL_SCAN_LIMIT - самый
+    // малочисленный из всех, дальше - меньший из двух случайных (power of two choices)
+    BALANCED
+}
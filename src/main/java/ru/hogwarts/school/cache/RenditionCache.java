@@ -0,0 +1,70 @@
+package ru.hogwarts.school.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.hogwarts.school.dto.CacheStatsDto;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Байты рендишенов аватарок в памяти (LRU). Ограничен не числом записей, а суммарным размером:
+ * при превышении maxSize вытесняются давно не читанные записи. maxSize = 0 выключает кэш.
+ * Массивы отдаются без копирования, изменять их нельзя.
+ */
+@Component
+public class RenditionCache {
+
+    Logger log = LoggerFactory.getLogger(RenditionCache.class);
+
+    private final long maxBytes;
+    private final Map<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public RenditionCache(@Value("${avatar.rendition.cache.max-size}") DataSize maxSize) {
+        this.maxBytes = maxSize.toBytes();
+    }
+
+    // null, если записи нет
+    public synchronized byte[] get(String key) {
+        byte[] data = entries.get(key);
+        (data == null ? misses : hits).incrementAndGet();
+        return data;
+    }
+
+    public synchronized void put(String key, byte[] data) {
+        if (data.length > maxBytes) {
+            return;
+        }
+        byte[] previous = entries.put(key, data);
+        totalBytes += data.length - (previous == null ? 0 : previous.length);
+        Iterator<byte[]> eldest = entries.values().iterator();
+        while (totalBytes > maxBytes) {
+            totalBytes -= eldest.next().length;
+            eldest.remove();
+        }
+    }
+
+    public synchronized void remove(String key) {
+        byte[] previous = entries.remove(key);
+        if (previous != null) {
+            totalBytes -= previous.length;
+        }
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized CacheStatsDto getStats() {
+        return new CacheStatsDto(hits.get(), misses.get(), entries.size());
+    }
+}
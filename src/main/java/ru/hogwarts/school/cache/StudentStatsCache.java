@@ -0,0 +1,189 @@
+package ru.hogwarts.school.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.hogwarts.school.dto.StudentStatsDto;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.repository.StudentTotals;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Снимок статистики по студентам в памяти: количество, сумма возрастов и число студентов на каждом факультете.
+ * Сервисы сообщают о каждом изменении, поэтому чтение не ходит в базу. Внутри транзакции изменение применяется
+ * после её коммита, при откате - не применяется. Раз в reconcile-interval снимок
+ * сверяется с базой одним GROUP BY запросом; если он старше maxStaleness (или был {@link #invalidate()}),
+ * сверка делается при чтении. maxStaleness = 0 выключает снимок: каждое чтение идёт в базу.
+ */
+@Component
+public class StudentStatsCache {
+
+    Logger log = LoggerFactory.getLogger(StudentStatsCache.class);
+
+    private final StudentRepository repository;
+    private final long maxStalenessNanos;
+
+    private long count;
+    private long ageCount;
+    private long ageSum;
+    private final Map<Long, Long> studentsByFaculty = new HashMap<>();
+    // время последней сверки по System.nanoTime(); null - снимка нет
+    private Long reconciledAt;
+    // count хоть раз загружался из базы: до этого peekCount знать нечего
+    private boolean loaded;
+
+    public StudentStatsCache(StudentRepository repository,
+                             @Value("${student.stats.max-staleness}") Duration maxStaleness) {
+        this.repository = repository;
+        this.maxStalenessNanos = maxStaleness.toNanos();
+    }
+
+    public StudentStatsDto getStats() {
+        if (maxStalenessNanos == 0) {
+            StudentStatsDto result = load();
+            synchronized (this) {
+                count = result.getCount();
+                loaded = true;
+            }
+            return result;
+        }
+        if (isStale()) {
+            reconcile();
+        }
+        synchronized (this) {
+            return new StudentStatsDto(count, ageCount, ageSum, new HashMap<>(studentsByFaculty));
+        }
+    }
+
+    // последнее известное число студентов без сверки с базой, для метрик: снятие метрик не должно делать запросов.
+    // NaN, пока снимок ни разу не загружался
+    public synchronized double peekCount() {
+        return loaded ? count : Double.NaN;
+    }
+
+    // изменение, закоммиченное между запросом и записью снимка, может посчитаться дважды или потеряться,
+    // поэтому расхождение живёт не дольше одного интервала сверки
+    @Scheduled(fixedDelayString = "${student.stats.reconcile-interval}")
+    public void reconcile() {
+        if (maxStalenessNanos == 0) {
+            return;
+        }
+        StudentStatsDto loaded = load();
+        synchronized (this) {
+            if (reconciledAt != null && (count != loaded.getCount() || ageSum != loaded.getAgeSum())) {
+                log.debug("Student stats drifted: count {} -> {}, age sum {} -> {}",
+                        count, loaded.getCount(), ageSum, loaded.getAgeSum());
+            }
+            count = loaded.getCount();
+            ageCount = loaded.getAgeCount();
+            ageSum = loaded.getAgeSum();
+            studentsByFaculty.clear();
+            studentsByFaculty.putAll(loaded.getStudentsByFaculty());
+            reconciledAt = System.nanoTime();
+            this.loaded = true;
+        }
+    }
+
+    // возраст может быть null: SUM(age) и COUNT(age) в базе такие строки тоже пропускают
+    public void onCreated(Integer age, Long facultyId) {
+        afterCommit(() -> {
+            count++;
+            ageCount += countOf(age);
+            ageSum += ageOf(age);
+            if (facultyId != null) {
+                studentsByFaculty.merge(facultyId, 1L, Long::sum);
+            }
+        });
+    }
+
+    public void onAgeChanged(Integer oldAge, Integer newAge) {
+        afterCommit(() -> {
+            ageCount += countOf(newAge) - countOf(oldAge);
+            ageSum += ageOf(newAge) - ageOf(oldAge);
+        });
+    }
+
+    public void onDeleted(Integer age, Long facultyId) {
+        afterCommit(() -> {
+            count--;
+            ageCount -= countOf(age);
+            ageSum -= ageOf(age);
+            if (facultyId != null) {
+                studentsByFaculty.computeIfPresent(facultyId, (id, students) -> students > 1 ? students - 1 : null);
+            }
+        });
+    }
+
+    // массовое повышение возраста: меняются только строки с возрастом, поэтому хватает их числа
+    public void onAgesIncremented(long students, int years) {
+        afterCommit(() -> ageSum += students * years);
+    }
+
+    public void onMoved(long fromFacultyId, long toFacultyId, long students) {
+        if (students == 0) {
+            return;
+        }
+        afterCommit(() -> {
+            studentsByFaculty.remove(fromFacultyId);
+            studentsByFaculty.merge(toFacultyId, students, Long::sum);
+        });
+    }
+
+    // для изменений, которые нельзя посчитать по одному студенту (например, каскадное удаление с факультетом).
+    // До коммита сверка увидела бы старые данные и снова пометила снимок свежим
+    public void invalidate() {
+        afterCommit(() -> reconciledAt = null);
+    }
+
+    private void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(change);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(change);
+            }
+        });
+    }
+
+    private synchronized void apply(Runnable change) {
+        change.run();
+    }
+
+    private synchronized boolean isStale() {
+        return reconciledAt == null || System.nanoTime() - reconciledAt > maxStalenessNanos;
+    }
+
+    private static long countOf(Integer age) {
+        return age == null ? 0 : 1;
+    }
+
+    private static long ageOf(Integer age) {
+        return age == null ? 0 : age;
+    }
+
+    private StudentStatsDto load() {
+        long loadedCount = 0;
+        long loadedAgeCount = 0;
+        long loadedAgeSum = 0;
+        Map<Long, Long> loadedByFaculty = new HashMap<>();
+        for (StudentTotals totals : repository.sumByFaculty()) {
+            loadedCount += totals.getStudentCount();
+            loadedAgeCount += totals.getAgeCount();
+            loadedAgeSum += totals.getAgeSum();
+            if (totals.getFacultyId() != null) {
+                loadedByFaculty.put(totals.getFacultyId(), totals.getStudentCount());
+            }
+        }
+        return new StudentStatsDto(loadedCount, loadedAgeCount, loadedAgeSum, loadedByFaculty);
+    }
+}
@@ -1,59 +1,99 @@
 package ru.hogwarts.school.controller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.hogwarts.school.dto.AvatarDto;
+import ru.hogwarts.school.dto.AvatarPreviewStatsDto;
+import ru.hogwarts.school.dto.CacheStatsDto;
+import ru.hogwarts.school.dto.KeysetPageDto;
+import ru.hogwarts.school.exception.AvatarNotFoundException;
+import ru.hogwarts.school.model.PreviewStatus;
 import ru.hogwarts.school.service.AvatarService;
 
-import java.io.*;
-import java.nio.file.Files;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.Collection;
+import java.util.List;
 
 @RestController
 @RequestMapping("avatar")
 public class AvatarController {
     private final AvatarService service;
+    private final FileSender fileSender;
 
-    public AvatarController(AvatarService service) {
+    public AvatarController(AvatarService service, FileSender fileSender) {
         this.service = service;
+        this.fileSender = fileSender;
     }
 
     @PostMapping(value = "{studentId}/avatar", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<String> upload(@PathVariable Long studentId, @RequestParam MultipartFile avatar) throws IOException {
-        service.upload(studentId, avatar);
-        return ResponseEntity.ok().build();
+    public ResponseEntity<AvatarDto> upload(@PathVariable Long studentId, @RequestParam MultipartFile avatar) throws IOException {
+        // 202: превью ещё строится, previewStatus = PROCESSING
+        return ResponseEntity.accepted().body(service.upload(studentId, avatar));
     }
 
+    // превью адресуется хэшем содержимого, поэтому он же служит ETag
     @GetMapping(value = "{id}/get-avatar-from-db")
-    public ResponseEntity<byte[]> download(@PathVariable Long id) {
+    public ResponseEntity<byte[]> download(@PathVariable Long id, WebRequest request) {
         AvatarDto avatarDto = service.find(id);
+        if (avatarDto.getPreviewHash() == null) {
+            if (avatarDto.getPreviewStatus() == PreviewStatus.PROCESSING) {
+                return ResponseEntity.accepted().header(HttpHeaders.RETRY_AFTER, "1").build();
+            }
+            return ResponseEntity.notFound().build();
+        }
+        String eTag = "\"" + avatarDto.getPreviewHash() + "\"";
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        byte[] preview = service.findPreview(avatarDto.getPreviewHash());
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.parseMediaType(avatarDto.getMediaType()));
-        headers.setContentLength(avatarDto.getData().length);
-        return ResponseEntity.status(HttpStatus.OK).headers(headers).body(avatarDto.getData());
+        headers.setContentLength(preview.length);
+        headers.setETag(eTag);
+        return ResponseEntity.status(HttpStatus.OK).headers(headers).body(preview);
+    }
+
+    // ширина округляется вверх до ближайшей из avatar.rendition.sizes
+    @GetMapping(value = "{id}/rendition")    // http://localhost:8080/avatar/1/rendition?width=64
+    public ResponseEntity<byte[]> downloadRendition(@PathVariable Long id,
+                                                    @RequestParam(defaultValue = "100") int width,
+                                                    WebRequest request) throws IOException {
+        AvatarDto avatarDto = service.find(id);
+        String eTag = "\"" + service.findRenditionKey(avatarDto, width) + "\"";
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        byte[] rendition = service.findRendition(avatarDto, width);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(service.findRenditionMediaType(avatarDto)));
+        headers.setContentLength(rendition.length);
+        headers.setETag(eTag);
+        return ResponseEntity.status(HttpStatus.OK).headers(headers).body(rendition);
     }
 
+    // поддерживает Range, ETag/If-None-Match и Last-Modified/If-Modified-Since
     @GetMapping(value = "{id}/get-avatar-from-file")
-    public void download(@PathVariable Long id, HttpServletResponse response) throws IOException {
+    public void download(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response) throws IOException {
         AvatarDto avatarDto = service.find(id);
-        Path path = Path.of(avatarDto.getFilePath());
-        try (InputStream is = Files.newInputStream(path);
-             OutputStream os = response.getOutputStream();
-             BufferedInputStream bis = new BufferedInputStream(is, 1024);
-             BufferedOutputStream bos = new BufferedOutputStream(os, 1024)) {
-            response.setStatus(200);
-            response.setContentType(avatarDto.getMediaType());
-            response.setContentLength((int) avatarDto.getFileSize());
-            bis.transferTo(bos);
+        try {
+            fileSender.send(Path.of(avatarDto.getFilePath()), avatarDto.getMediaType(), request, response);
+        } catch (NoSuchFileException e) {
+            throw new AvatarNotFoundException("File of avatar with id " + id + " not found");
         }
     }
 
+    @ConditionalGet
     @GetMapping()
     public ResponseEntity<Collection<AvatarDto>> findAll(
             @RequestParam("page") Integer pageNumber,
@@ -72,26 +112,40 @@ public class AvatarController {
                 .body(avatarDtoList);
     }
 
-    // возвращает ссылки на скачивание аватарок xD
-//    @GetMapping(value = "previews")
-//    public void findAllAvatarPreviews(
-//            @RequestParam("page") Integer pageNumber,
-//            @RequestParam("size") Integer pageSize,
-//            HttpServletResponse response) throws IOException {
-//        var avatarDtoList = service
-//                .findAllAvatarPreviews(pageNumber, pageSize)
-//                .stream()
-//                .toList();
-//
-//        response.setStatus(200);
-//        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
-//        response.setContentLength(avatarDtoList.stream().mapToInt(e -> e.getData().length).sum());
-//
-//        try(OutputStream os = response.getOutputStream();
-//        BufferedOutputStream bos = new BufferedOutputStream(os, 1024)) {
-//            for (AvatarDto a : avatarDtoList) {
-//                bos.write(a.getData());
-//            }
-//        }
-//    }
+    @ConditionalGet
+    @GetMapping(params = "limit")   // http://localhost:8080/avatar?limit=50&after_id=0 или ?limit=50&token={nextToken}
+    public ResponseEntity<KeysetPageDto<AvatarDto>> findPage(
+            @RequestParam(name = "after_id", required = false) Long afterId,
+            @RequestParam(required = false) String token,
+            @RequestParam int limit) {
+        return ResponseEntity.ok(service.findPage(KeysetPageDto.resolveAfterId(afterId, token), limit));
+    }
+
+    // ZIP с превью аватарок по списку id или странице (after_id/limit), пишется в ответ по одному превью
+    @GetMapping(value = "previews", produces = "application/zip")    // http://localhost:8080/avatar/previews?ids=1,2,3
+    public ResponseEntity<StreamingResponseBody> downloadPreviews(
+            @RequestParam(required = false) List<Long> ids,
+            @RequestParam(name = "after_id", required = false) Long afterId,
+            @RequestParam(required = false) String token,
+            @RequestParam(defaultValue = "100") int limit) {
+        // аватарки выбираются до начала ответа: ошибка в параметрах ещё может вернуть 400
+        List<AvatarDto> avatars = ids != null
+                ? service.findAllById(ids)
+                : service.findPage(KeysetPageDto.resolveAfterId(afterId, token), limit).getContent();
+        StreamingResponseBody body = outputStream -> service.writePreviews(avatars, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("previews.zip").build().toString())
+                .body(body);
+    }
+
+    @GetMapping("rendition_cache_stats")    // http://localhost:8080/avatar/rendition_cache_stats
+    public ResponseEntity<CacheStatsDto> getRenditionCacheStats() {
+        return ResponseEntity.ok(service.getRenditionCacheStats());
+    }
+
+    @GetMapping("preview_stats")            // http://localhost:8080/avatar/preview_stats
+    public ResponseEntity<AvatarPreviewStatsDto> getPreviewStats() {
+        return ResponseEntity.ok(service.getPreviewStats());
+    }
 }
@@ -0,0 +1,16 @@
+package ru.hogwarts.school.controller;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * GET-эндпоинт с Cache-Control и ETag, см. {@link ConditionalGetAdvice}.
+ * maxAge - сколько секунд клиент может не перепроверять ответ; 0 - перепроверять каждый раз (no-cache).
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConditionalGet {
+    long maxAge() default 0;
+}
@@ -0,0 +1,146 @@
+package ru.hogwarts.school.controller;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import ru.hogwarts.school.dto.KeysetPageDto;
+import ru.hogwarts.school.dto.Versioned;
+import ru.hogwarts.school.exception.StaleVersionException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache-Control и слабый ETag для методов с {@link ConditionalGet}. ETag строится из id и версий
+ * DTO в ответе ({@link Versioned}, их коллекции или {@link KeysetPageDto}), поэтому считается до сериализации:
+ * на совпавший If-None-Match отдаётся 304 без тела, JSON не строится.
+ * Для ответов без версий (счётчики, статистика) ставится только Cache-Control.
+ */
+@RestControllerAdvice
+public class ConditionalGetAdvice implements ResponseBodyAdvice<Object> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return returnType.hasMethodAnnotation(ConditionalGet.class);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body,
+                                  MethodParameter returnType,
+                                  MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request,
+                                  ServerHttpResponse response) {
+        if (!HttpMethod.GET.equals(request.getMethod()) && !HttpMethod.HEAD.equals(request.getMethod())) {
+            return body;
+        }
+        if (response instanceof ServletServerHttpResponse servletResponse
+                && servletResponse.getServletResponse().getStatus() != HttpStatus.OK.value()) {
+            return body;
+        }
+
+        long maxAge = returnType.getMethodAnnotation(ConditionalGet.class).maxAge();
+        response.getHeaders().setCacheControl(maxAge == 0
+                ? CacheControl.noCache()
+                : CacheControl.maxAge(maxAge, TimeUnit.SECONDS));
+
+        String eTag = eTag(body);
+        if (eTag == null) {
+            return body;
+        }
+        response.getHeaders().setETag(eTag);
+        if (matches(request.getHeaders().getIfNoneMatch(), eTag)) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return null;
+        }
+        return body;
+    }
+
+    // null, если в ответе есть объект без версии
+    static String eTag(Object body) {
+        if (body instanceof Versioned versioned) {
+            return versioned.getVersion() == null ? null : "W/\"" + versioned.getId() + "-" + versioned.getVersion() + "\"";
+        }
+        Collection<?> items;
+        String nextToken = null;
+        if (body instanceof KeysetPageDto<?> page) {
+            items = page.getContent();
+            nextToken = page.getNextToken();
+        } else if (body instanceof Collection<?> collection) {
+            items = collection;
+        } else {
+            return null;
+        }
+
+        MessageDigest digest = sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(2 * Long.BYTES);
+        for (Object item : items) {
+            if (!(item instanceof Versioned versioned) || versioned.getId() == null || versioned.getVersion() == null) {
+                return null;
+            }
+            buffer.clear();
+            buffer.putLong(versioned.getId()).putLong(versioned.getVersion());
+            digest.update(buffer.array());
+        }
+        if (nextToken != null) {
+            digest.update(nextToken.getBytes(StandardCharsets.US_ASCII));
+        }
+        return "W/\"" + items.size() + "-" + HexFormat.of().formatHex(digest.digest(), 0, 8) + "\"";
+    }
+
+    /**
+     * Версия из If-Match в формате ETag одного DTO (W/"id-version"). null для "*" - подойдёт любая версия.
+     * ETag другого объекта или непонятный заголовок - StaleVersionException (412).
+     */
+    public static Long versionFromIfMatch(String ifMatch, Long id) {
+        String tag = ifMatch.trim();
+        if ("*".equals(tag)) {
+            return null;
+        }
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        String prefix = "\"" + id + "-";
+        if (tag.startsWith(prefix) && tag.endsWith("\"") && tag.length() > prefix.length() + 1) {
+            try {
+                return Long.parseLong(tag.substring(prefix.length(), tag.length() - 1));
+            } catch (NumberFormatException e) {
+                // ниже
+            }
+        }
+        throw new StaleVersionException("If-Match " + ifMatch + " does not match entity with id " + id);
+    }
+
+    // для If-None-Match сравнение слабое: W/ не учитывается
+    private static boolean matches(List<String> ifNoneMatch, String eTag) {
+        String opaqueTag = eTag.substring(2);
+        for (String candidate : ifNoneMatch) {
+            if ("*".equals(candidate) || opaqueTag.equals(candidate.startsWith("W/") ? candidate.substring(2) : candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
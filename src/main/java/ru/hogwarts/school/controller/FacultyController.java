@@ -2,7 +2,9 @@ package ru.hogwarts.school.controller;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.hogwarts.school.dto.CacheStatsDto;
 import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.dto.KeysetPageDto;
 import ru.hogwarts.school.dto.StudentDto;
 import ru.hogwarts.school.service.FacultyService;
 
@@ -23,6 +25,7 @@ public class FacultyController {
         return service.create(facultyDto);
     }
 
+    @ConditionalGet
     @GetMapping("{id}")             // http://localhost:8080/faculty/1
     public ResponseEntity<FacultyDto> getFaculty(@PathVariable(value = "id") long facultyId) {
         FacultyDto faculty = service.find(facultyId);
@@ -47,26 +50,54 @@ public class FacultyController {
         return ResponseEntity.ok().build();
     }
 
+    @ConditionalGet
     @GetMapping                     // http://localhost:8080/faculty
     public ResponseEntity<Collection<FacultyDto>> getAllFaculties() {
         return ResponseEntity.ok(service.getAll());
     }
 
+    @ConditionalGet
+    @GetMapping(params = "limit")   // http://localhost:8080/faculty?limit=50&after_id=0 или ?limit=50&token={nextToken}
+    public ResponseEntity<KeysetPageDto<FacultyDto>> getPage(
+            @RequestParam(name = "after_id", required = false) Long afterId,
+            @RequestParam(required = false) String token,
+            @RequestParam int limit) {
+        return ResponseEntity.ok(service.getPage(KeysetPageDto.resolveAfterId(afterId, token), limit));
+    }
+
+    @ConditionalGet
     @GetMapping("color/{color}")    // http://localhost:8080/faculty/color/{red}
     public ResponseEntity<Collection<FacultyDto>> getAllFacultiesByColor(@PathVariable(value = "color") String facultyColor) {
         return ResponseEntity.ok(service.getAllByColor(facultyColor));
     }
 
+    @ConditionalGet
     @GetMapping("search")           // http://localhost:8080/faculty/search?name={name}&color={color}
     public ResponseEntity<Collection<FacultyDto>> getByNameOrColorIgnoreCase(@RequestParam String name, @RequestParam String color) {
         return ResponseEntity.ok(service.getByNameOrColorIgnoreCase(name, color));
     }
 
+    @ConditionalGet
     @GetMapping("students")         // http://localhost:8080/faculty/students?facultyName={facultyName}
     public ResponseEntity<Collection<StudentDto>> findStudentsByFacultyName(@RequestParam String facultyName) {
         return ResponseEntity.ok(service.findStudentsByFacultyName(facultyName));
     }
 
+    @ConditionalGet
+    @GetMapping(value = "students", params = "limit")   // http://localhost:8080/faculty/students?facultyName={facultyName}&limit=50&after_id=0 или &token={nextToken}
+    public ResponseEntity<KeysetPageDto<StudentDto>> findStudentsByFacultyNamePage(
+            @RequestParam String facultyName,
+            @RequestParam(name = "after_id", required = false) Long afterId,
+            @RequestParam(required = false) String token,
+            @RequestParam int limit) {
+        return ResponseEntity.ok(service.findStudentsByFacultyNamePage(facultyName, KeysetPageDto.resolveAfterId(afterId, token), limit));
+    }
+
+    @GetMapping("/cache_stats")    // http://localhost:8080/faculty/cache_stats
+    public ResponseEntity<CacheStatsDto> getCacheStats() {
+        return ResponseEntity.ok(service.getCacheStats());
+    }
+
     @GetMapping("/get_longest_name")
     public ResponseEntity<String> getLongestName() {
         return ResponseEntity.ok(service.getLongestName());
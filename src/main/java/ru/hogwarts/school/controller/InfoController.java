@@ -1,37 +1,35 @@
 package ru.hogwarts.school.controller;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-
-import java.util.stream.IntStream;
+import ru.hogwarts.school.service.RangeSumService;
+import ru.hogwarts.school.service.SumStrategy;
 
 @RestController
 public class InfoController {
-    Logger log = LoggerFactory.getLogger(InfoController.class);
-
     @Value("${server.port}")
     private String port;
 
+    private final RangeSumService rangeSumService;
+
+    public InfoController(RangeSumService rangeSumService) {
+        this.rangeSumService = rangeSumService;
+    }
+
     @GetMapping("get_port")
     public ResponseEntity<String> getPort() {
         return ResponseEntity.ok(port);
     }
 
-    @GetMapping("get_some_value")
-    public ResponseEntity<Integer> getSomeValue() {
-        long start = System.currentTimeMillis();
-
-        Integer result = IntStream.rangeClosed(1, Integer.MAX_VALUE)
-                .parallel()
-                .reduce(0, Integer::sum);
-
-        long total = System.currentTimeMillis() - start;
-
-        log.info("Method getSomeValue completed from {} milliseconds", total);
-        return ResponseEntity.ok(result);
+    // по умолчанию сумма 1..Integer.MAX_VALUE по формуле; mode=FORK_JOIN складывает числа по-настоящему
+    @GetMapping("get_some_value")           // http://localhost:8080/get_some_value?from=1&to=1000000&mode=FORK_JOIN
+    public ResponseEntity<Long> getSomeValue(
+            @RequestParam(defaultValue = "1") int from,
+            @RequestParam(defaultValue = "" + Integer.MAX_VALUE) int to,
+            @RequestParam(defaultValue = "FORMULA") SumStrategy mode) {
+        return ResponseEntity.ok(rangeSumService.sum(from, to, mode));
     }
 }
@@ -1,22 +1,39 @@
 package ru.hogwarts.school.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.hogwarts.school.dto.BulkResultDto;
 import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.dto.KeysetPageDto;
+import ru.hogwarts.school.dto.RosterStatsDto;
+import ru.hogwarts.school.dto.StudentAnalyticsDto;
 import ru.hogwarts.school.dto.StudentDto;
+import ru.hogwarts.school.dto.StudentStatsDto;
 import ru.hogwarts.school.service.StudentService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collection;
+import java.util.List;
 
 @RestController
 @RequestMapping("student")
 public class StudentController {
 
     private final StudentService service;
+    private final ObjectMapper objectMapper;
 
-    public StudentController(StudentService service) {
+    public StudentController(StudentService service, ObjectMapper objectMapper) {
         this.service = service;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("create_with_random_faculty")      // POST http://localhost:8080/student/create_with_random_faculty
@@ -33,6 +50,7 @@ public class StudentController {
         return new ResponseEntity<>(service.create(studentDto, facultyName), HttpStatus.CREATED);
     }
 
+    @ConditionalGet
     @GetMapping("{id}")                      // http://localhost:8080/student/{1}
     public ResponseEntity<StudentDto> get(@PathVariable(value = "id") long studentId) {
         StudentDto studentDto = service.findById(studentId);
@@ -42,13 +60,15 @@ public class StudentController {
         return ResponseEntity.ok(studentDto);
     }
 
+    // If-Match: ETag из GET /student/{id}; при устаревшей версии - 412
     @PutMapping                              // http://localhost:8080/student
-    public ResponseEntity<StudentDto> edit(@RequestBody StudentDto studentDto) {
-        StudentDto foundStudentDto = service.edit(studentDto);
-        if (foundStudentDto == null) {
-            return ResponseEntity.notFound().build();
+    public ResponseEntity<StudentDto> edit(@RequestBody StudentDto studentDto,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (ifMatch != null) {
+            studentDto.setVersion(ConditionalGetAdvice.versionFromIfMatch(ifMatch, studentDto.getId()));
         }
-        return ResponseEntity.ok(foundStudentDto);
+        StudentDto foundStudentDto = service.edit(studentDto);
+        return ResponseEntity.ok().eTag(ConditionalGetAdvice.eTag(foundStudentDto)).body(foundStudentDto);
     }
 
     @DeleteMapping("{id}")                   // http://localhost:8080/student/1
@@ -57,36 +77,120 @@ public class StudentController {
         return ResponseEntity.ok().build();
     }
 
+    @PutMapping("bulk/faculty")              // http://localhost:8080/student/bulk/faculty?from=1&to=2
+    public ResponseEntity<BulkResultDto> moveToFaculty(@RequestParam long from, @RequestParam long to) {
+        return ResponseEntity.ok(service.moveToFaculty(from, to));
+    }
+
+    @PutMapping("bulk/age")                  // http://localhost:8080/student/bulk/age?years=1 или ?years=1&faculty_id=1
+    public ResponseEntity<BulkResultDto> incrementAges(
+            @RequestParam(defaultValue = "1") int years,
+            @RequestParam(name = "faculty_id", required = false) Long facultyId) {
+        return ResponseEntity.ok(service.incrementAges(years, facultyId));
+    }
+
+    @DeleteMapping(value = "bulk", params = "ids")  // http://localhost:8080/student/bulk?ids=1,2,3
+    public ResponseEntity<BulkResultDto> deleteAllById(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(service.deleteAllById(ids));
+    }
+
+    @DeleteMapping("bulk")                   // http://localhost:8080/student/bulk?faculty_id=1&min_age=10&max_age=20
+    public ResponseEntity<BulkResultDto> deleteByFilter(
+            @RequestParam(name = "faculty_id", required = false) Long facultyId,
+            @RequestParam(name = "min_age", required = false) Integer minAge,
+            @RequestParam(name = "max_age", required = false) Integer maxAge) {
+        return ResponseEntity.ok(service.deleteByFilter(facultyId, minAge, maxAge));
+    }
+
+    @ConditionalGet
     @GetMapping                             // http://localhost:8080/student
     public ResponseEntity<Collection<StudentDto>> getAll() {
         return ResponseEntity.ok(service.getAll());
     }
 
+    @ConditionalGet
+    @GetMapping(params = "limit")           // http://localhost:8080/student?limit=50&after_id=0 или ?limit=50&token={nextToken}
+    public ResponseEntity<KeysetPageDto<StudentDto>> getPage(
+            @RequestParam(name = "after_id", required = false) Long afterId,
+            @RequestParam(required = false) String token,
+            @RequestParam int limit) {
+        return ResponseEntity.ok(service.getPage(KeysetPageDto.resolveAfterId(afterId, token), limit));
+    }
+
+    @GetMapping(value = "stream", produces = MediaType.APPLICATION_NDJSON_VALUE)   // http://localhost:8080/student/stream
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        // без flush после каждой строки, иначе на каждого студента будет отдельная запись в сокет
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                service.streamAll(studentDto -> {
+                    try {
+                        writer.writeValue(generator, studentDto);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @ConditionalGet
     @GetMapping("age/{age}")                // http://localhost:8080/student/age/18
     public ResponseEntity<Collection<StudentDto>> getAllByAge(@PathVariable(value = "age") int studentAge) {
         return ResponseEntity.ok(service.getAllByAge(studentAge));
     }
 
+    @ConditionalGet
     @GetMapping("age")                      // http://localhost:8080/student/age
     public ResponseEntity<Collection<StudentDto>> findByAgeBetween(@RequestParam int min, @RequestParam int max) {
         return ResponseEntity.ok(service.findByAgeBetween(min, max));
     }
 
+    @ConditionalGet
+    @GetMapping(value = "age", params = "limit")    // http://localhost:8080/student/age?min=10&max=20&limit=50
+    public ResponseEntity<KeysetPageDto<StudentDto>> findByAgeBetweenPage(
+            @RequestParam int min,
+            @RequestParam int max,
+            @RequestParam(name = "after_id", required = false) Long afterId,
+            @RequestParam(required = false) String token,
+            @RequestParam int limit) {
+        return ResponseEntity.ok(service.findByAgeBetweenPage(min, max, KeysetPageDto.resolveAfterId(afterId, token), limit));
+    }
+
+    @ConditionalGet
     @GetMapping("faculty")                  // http://localhost:8080/student/faculty
     public ResponseEntity<FacultyDto> getFacultyByStudentId(@RequestParam long studentId) {
         return ResponseEntity.ok(service.findFacultyByStudentId(studentId));
     }
 
+    @ConditionalGet(maxAge = 10)
     @GetMapping("/count")
     public ResponseEntity<Long> count() {
         return ResponseEntity.ok(service.count());
     }
 
+    @ConditionalGet(maxAge = 10)
     @GetMapping("/avg_age")
     public ResponseEntity<Integer> avgAge() {
         return ResponseEntity.ok(service.avgAge());
     }
 
+    @ConditionalGet(maxAge = 10)
+    @GetMapping("/stats")                   // http://localhost:8080/student/stats
+    public ResponseEntity<StudentStatsDto> getStats() {
+        return ResponseEntity.ok(service.getStats());
+    }
+
+    @ConditionalGet(maxAge = 10)
+    @GetMapping("/analytics")               // http://localhost:8080/student/analytics
+    public ResponseEntity<StudentAnalyticsDto> getAnalytics() {
+        return ResponseEntity.ok(service.getAnalytics());
+    }
+
+    @ConditionalGet
     @GetMapping("/five_last_students")
     public ResponseEntity<Collection<StudentDto>> findFileLastStudents() {
         return ResponseEntity.ok(service.findFileLastStudents());
@@ -97,20 +201,24 @@ public class StudentController {
         return ResponseEntity.ok(service.findNamesStartsWithAAscUpperCase());
     }
 
+    @ConditionalGet(maxAge = 10)
     @GetMapping("/get_avg_age")
     public ResponseEntity<String> getAvgAge() {
         return ResponseEntity.ok(service.getAvgAge());
     }
 
-    @GetMapping("/print-parallel")
-    public ResponseEntity<Void> printParallel() {
-        service.printParallel();
-        return ResponseEntity.ok().build();
+    @GetMapping("/print-parallel")          // http://localhost:8080/student/print-parallel
+    public ResponseEntity<List<String>> printParallel() {
+        return ResponseEntity.ok(service.printParallel());
     }
 
-    @GetMapping("/print-synchronized")
-    public ResponseEntity<Void> printSynchronized() {
-        service.printSynchronized();
-        return ResponseEntity.ok().build();
+    @GetMapping("/print-synchronized")      // http://localhost:8080/student/print-synchronized
+    public ResponseEntity<List<String>> printSynchronized() {
+        return ResponseEntity.ok(service.printSynchronized());
+    }
+
+    @GetMapping("/roster_stats")            // http://localhost:8080/student/roster_stats
+    public ResponseEntity<RosterStatsDto> getRosterStats() {
+        return ResponseEntity.ok(service.getRosterStats());
     }
 }
@@ -0,0 +1,36 @@
+package ru.hogwarts.school.controller;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import ru.hogwarts.school.dto.StudentImportDto;
+import ru.hogwarts.school.dto.StudentImportResultDto;
+import ru.hogwarts.school.service.StudentImportService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+@RestController
+@RequestMapping("student/import")
+public class StudentImportController {
+
+    private final StudentImportService service;
+
+    public StudentImportController(StudentImportService service) {
+        this.service = service;
+    }
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)          // POST http://localhost:8080/student/import
+    public ResponseEntity<StudentImportResultDto> importStudents(@RequestBody List<StudentImportDto> students) {
+        return ResponseEntity.ok(service.importStudents(students));
+    }
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)       // POST http://localhost:8080/student/import (file=students.csv)
+    public ResponseEntity<StudentImportResultDto> importStudentsCsv(@RequestParam MultipartFile file) throws IOException {
+        try (InputStream is = file.getInputStream()) {
+            return ResponseEntity.ok(service.importCsv(is));
+        }
+    }
+}
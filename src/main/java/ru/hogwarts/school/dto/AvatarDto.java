@@ -1,19 +1,22 @@
 package ru.hogwarts.school.dto;
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
 import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.PreviewStatus;
 
-import java.util.Arrays;
 import java.util.Objects;
 
-public class AvatarDto {
+public class AvatarDto implements Versioned {
     private Long id;
     private String filePath;
     private long fileSize;
     private String mediaType;
-    @JsonIgnore
-    private byte[] data;
+    private String contentHash;
+    private Integer width;
+    private Integer height;
+    private String previewHash;
+    private PreviewStatus previewStatus;
     private StudentDto studentDto;
+    private Long version;
 
     public static AvatarDto toDto(Avatar avatar) {
         AvatarDto avatarDto = new AvatarDto();
@@ -21,7 +24,12 @@ public class AvatarDto {
         avatarDto.setFilePath(avatar.getFilePath());
         avatarDto.setFileSize(avatar.getFileSize());
         avatarDto.setMediaType(avatar.getMediaType());
-        avatarDto.setData(avatar.getData());
+        avatarDto.setContentHash(avatar.getContentHash());
+        avatarDto.setWidth(avatar.getWidth());
+        avatarDto.setHeight(avatar.getHeight());
+        avatarDto.setPreviewHash(avatar.getPreviewHash());
+        avatarDto.setPreviewStatus(avatar.getPreviewStatus());
+        avatarDto.setVersion(avatar.getVersion());
         if (avatar.getStudent() != null) {
             avatarDto.setStudentDto(StudentDto.toDto(avatar.getStudent()));
         }
@@ -36,8 +44,15 @@ public class AvatarDto {
         avatar.setFilePath(dto.getFilePath());
         avatar.setFileSize(dto.getFileSize());
         avatar.setMediaType(dto.getMediaType());
-        avatar.setData(dto.getData());
+        avatar.setContentHash(dto.getContentHash());
+        avatar.setWidth(dto.getWidth());
+        avatar.setHeight(dto.getHeight());
+        avatar.setPreviewHash(dto.getPreviewHash());
+        avatar.setPreviewStatus(dto.getPreviewStatus());
         avatar.setStudent(StudentDto.toEntity(dto.getStudentDto()));
+        if (dto.getVersion() != null) {
+            avatar.setVersion(dto.getVersion());
+        }
         return avatar;
     }
 
@@ -73,12 +88,44 @@ public class AvatarDto {
         this.mediaType = mediaType;
     }
 
-    public byte[] getData() {
-        return data;
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
     }
 
-    public void setData(byte[] data) {
-        this.data = data;
+    public String getPreviewHash() {
+        return previewHash;
+    }
+
+    public void setPreviewHash(String previewHash) {
+        this.previewHash = previewHash;
+    }
+
+    public PreviewStatus getPreviewStatus() {
+        return previewStatus;
+    }
+
+    public void setPreviewStatus(PreviewStatus previewStatus) {
+        this.previewStatus = previewStatus;
     }
 
     public StudentDto getStudentDto() {
@@ -89,29 +136,41 @@ public class AvatarDto {
         this.studentDto = studentDto;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         AvatarDto avatarDto = (AvatarDto) o;
-        return fileSize == avatarDto.fileSize && Objects.equals(id, avatarDto.id) && Objects.equals(filePath, avatarDto.filePath) && Objects.equals(mediaType, avatarDto.mediaType) && Objects.deepEquals(data, avatarDto.data) && Objects.equals(studentDto, avatarDto.studentDto);
+        return fileSize == avatarDto.fileSize && Objects.equals(id, avatarDto.id) && Objects.equals(filePath, avatarDto.filePath) && Objects.equals(mediaType, avatarDto.mediaType) && Objects.equals(contentHash, avatarDto.contentHash) && Objects.equals(width, avatarDto.width) && Objects.equals(height, avatarDto.height) && Objects.equals(previewHash, avatarDto.previewHash) && previewStatus == avatarDto.previewStatus && Objects.equals(studentDto, avatarDto.studentDto);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, filePath, fileSize, mediaType, Arrays.hashCode(data), studentDto);
+        return Objects.hash(id, filePath, fileSize, mediaType, contentHash, width, height, previewHash, previewStatus, studentDto);
     }
 
     @Override
     public String toString() {
-        int dataLength = data == null ? 0 : data.length;
         return "AvatarDto{" +
                 "id=" + id +
                 ", filePath='" + filePath + '\'' +
                 ", fileSize=" + fileSize +
                 ", mediaType='" + mediaType + '\'' +
-                ", data length=" + dataLength +
+                ", contentHash='" + contentHash + '\'' +
+                ", width=" + width +
+                ", height=" + height +
+                ", previewHash='" + previewHash + '\'' +
+                ", previewStatus=" + previewStatus +
                 ", studentDto=" + studentDto +
+                ", version=" + version +
                 '}';
     }
 }
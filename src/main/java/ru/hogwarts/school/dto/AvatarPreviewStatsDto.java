@@ -0,0 +1,125 @@
+package ru.hogwarts.school.dto;
+
+import java.util.Objects;
+
+public class AvatarPreviewStatsDto {
+
+    private int queued;
+    private int active;
+    private long completed;
+    private long failed;
+    private long retries;
+    private long processedInCaller;
+    private double averageProcessingMillis;
+    private double maxProcessingMillis;
+
+    public AvatarPreviewStatsDto() {
+    }
+
+    public AvatarPreviewStatsDto(int queued, int active, long completed, long failed, long retries,
+                                 long processedInCaller, double averageProcessingMillis, double maxProcessingMillis) {
+        this.queued = queued;
+        this.active = active;
+        this.completed = completed;
+        this.failed = failed;
+        this.retries = retries;
+        this.processedInCaller = processedInCaller;
+        this.averageProcessingMillis = averageProcessingMillis;
+        this.maxProcessingMillis = maxProcessingMillis;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public void setQueued(int queued) {
+        this.queued = queued;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public void setActive(int active) {
+        this.active = active;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(long completed) {
+        this.completed = completed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public long getRetries() {
+        return retries;
+    }
+
+    public void setRetries(long retries) {
+        this.retries = retries;
+    }
+
+    public long getProcessedInCaller() {
+        return processedInCaller;
+    }
+
+    public void setProcessedInCaller(long processedInCaller) {
+        this.processedInCaller = processedInCaller;
+    }
+
+    public double getAverageProcessingMillis() {
+        return averageProcessingMillis;
+    }
+
+    public void setAverageProcessingMillis(double averageProcessingMillis) {
+        this.averageProcessingMillis = averageProcessingMillis;
+    }
+
+    public double getMaxProcessingMillis() {
+        return maxProcessingMillis;
+    }
+
+    public void setMaxProcessingMillis(double maxProcessingMillis) {
+        this.maxProcessingMillis = maxProcessingMillis;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AvatarPreviewStatsDto that = (AvatarPreviewStatsDto) o;
+        return queued == that.queued && active == that.active && completed == that.completed && failed == that.failed
+                && retries == that.retries && processedInCaller == that.processedInCaller
+                && Double.compare(averageProcessingMillis, that.averageProcessingMillis) == 0
+                && Double.compare(maxProcessingMillis, that.maxProcessingMillis) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(queued, active, completed, failed, retries, processedInCaller,
+                averageProcessingMillis, maxProcessingMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "AvatarPreviewStatsDto{" +
+                "queued=" + queued +
+                ", active=" + active +
+                ", completed=" + completed +
+                ", failed=" + failed +
+                ", retries=" + retries +
+                ", processedInCaller=" + processedInCaller +
+                ", averageProcessingMillis=" + averageProcessingMillis +
+                ", maxProcessingMillis=" + maxProcessingMillis +
+                '}';
+    }
+}
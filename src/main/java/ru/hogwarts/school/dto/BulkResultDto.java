@@ -0,0 +1,43 @@
+package ru.hogwarts.school.dto;
+
+import java.util.Objects;
+
+public class BulkResultDto {
+
+    private long affected;
+
+    public BulkResultDto() {
+    }
+
+    public BulkResultDto(long affected) {
+        this.affected = affected;
+    }
+
+    public long getAffected() {
+        return affected;
+    }
+
+    public void setAffected(long affected) {
+        this.affected = affected;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BulkResultDto that = (BulkResultDto) o;
+        return affected == that.affected;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(affected);
+    }
+
+    @Override
+    public String toString() {
+        return "BulkResultDto{" +
+                "affected=" + affected +
+                '}';
+    }
+}
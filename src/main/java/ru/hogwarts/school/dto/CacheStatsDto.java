@@ -0,0 +1,70 @@
+package ru.hogwarts.school.dto;
+
+import java.util.Objects;
+
+public class CacheStatsDto {
+
+    private long hits;
+    private long misses;
+    private int size;
+
+    public CacheStatsDto() {
+    }
+
+    public CacheStatsDto(long hits, long misses, int size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.size = size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public void setHits(long hits) {
+        this.hits = hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public void setMisses(long misses) {
+        this.misses = misses;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CacheStatsDto that = (CacheStatsDto) o;
+        return hits == that.hits && misses == that.misses && size == that.size;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(hits, misses, size);
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatsDto{" +
+                "hits=" + hits +
+                ", misses=" + misses +
+                ", size=" + size +
+                '}';
+    }
+}
@@ -7,14 +7,14 @@ import ru.hogwarts.school.model.Student;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Objects;
-import java.util.stream.Collectors;
 
 @JsonIgnoreProperties(value = {"students"})
-public class FacultyDto {
+public class FacultyDto implements Versioned {
 
     private Long id;
     private String name;
     private String color;
+    private Long version;
 
     private Collection<StudentDto> students;
 
@@ -28,21 +28,14 @@ public class FacultyDto {
     public FacultyDto() {
     }
 
+    // студентов не трогает, чтобы не инициализировать ленивую коллекцию
     public static FacultyDto toDto(Faculty faculty) {
         FacultyDto dto = new FacultyDto();
         dto.setId(faculty.getId());
         dto.setName(faculty.getName());
         dto.setColor(faculty.getColor());
-        if (faculty.getStudents() != null) {
-            dto.setStudents(faculty
-                    .getStudents()
-                    .stream()
-                    .map(StudentDto::toDto)
-                    .collect(Collectors.toCollection(ArrayList::new))
-            );
-        } else {
-            dto.setStudents(new ArrayList<StudentDto>());
-        }
+        dto.setVersion(faculty.getVersion());
+        dto.setStudents(new ArrayList<StudentDto>());
         return dto;
     }
 
@@ -51,6 +44,9 @@ public class FacultyDto {
         faculty.setId(dto.getId());
         faculty.setName(dto.getName());
         faculty.setColor(dto.getColor());
+        if (dto.getVersion() != null) {
+            faculty.setVersion(dto.getVersion());
+        }
         if (dto.getStudents() != null) {
             faculty.setStudents(dto
                     .getStudents()
@@ -87,6 +83,14 @@ public class FacultyDto {
         this.color = color;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public Collection<StudentDto> getStudents() {
         return students == null
                 ? new ArrayList<>()
@@ -116,6 +120,7 @@ public class FacultyDto {
                 "id=" + id +
                 ", name='" + name + '\'' +
                 ", color='" + color + '\'' +
+                ", version=" + version +
                 ", students=" + students +
                 '}';
     }
@@ -0,0 +1,99 @@
+package ru.hogwarts.school.dto;
+
+import ru.hogwarts.school.exception.IncorrectPageParameterException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.ToLongFunction;
+
+public class KeysetPageDto<T> {
+
+    public static final int MAX_LIMIT = 1000;
+
+    private static final String TOKEN_PREFIX = "after:";
+
+    private List<T> content;
+    private String nextToken;
+
+    public KeysetPageDto() {
+    }
+
+    public KeysetPageDto(List<T> content, String nextToken) {
+        this.content = content;
+        this.nextToken = nextToken;
+    }
+
+    // rows должны быть выбраны с limit + 1: лишняя строка только говорит о том, что есть следующая страница
+    public static <T> KeysetPageDto<T> of(List<T> rows, int limit, ToLongFunction<T> idExtractor) {
+        if (rows.size() <= limit) {
+            return new KeysetPageDto<>(rows, null);
+        }
+        List<T> content = rows.subList(0, limit);
+        return new KeysetPageDto<>(content, encodeToken(idExtractor.applyAsLong(content.get(limit - 1))));
+    }
+
+    public static String encodeToken(long afterId) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString((TOKEN_PREFIX + afterId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static long decodeToken(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(TOKEN_PREFIX)) {
+                throw new IncorrectPageParameterException("Incorrect continuation token");
+            }
+            return Long.parseLong(decoded.substring(TOKEN_PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new IncorrectPageParameterException("Incorrect continuation token");
+        }
+    }
+
+    // токен важнее after_id: клиент, который просто идёт по страницам, передаёт только его
+    public static long resolveAfterId(Long afterId, String token) {
+        if (token != null) {
+            return decodeToken(token);
+        }
+        return afterId == null ? 0 : afterId;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public void setContent(List<T> content) {
+        this.content = content;
+    }
+
+    public String getNextToken() {
+        return nextToken;
+    }
+
+    public void setNextToken(String nextToken) {
+        this.nextToken = nextToken;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        KeysetPageDto<?> that = (KeysetPageDto<?>) o;
+        return Objects.equals(content, that.content) && Objects.equals(nextToken, that.nextToken);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(content, nextToken);
+    }
+
+    @Override
+    public String toString() {
+        return "KeysetPageDto{" +
+                "content size=" + (content == null ? 0 : content.size()) +
+                ", nextToken='" + nextToken + '\'' +
+                '}';
+    }
+}
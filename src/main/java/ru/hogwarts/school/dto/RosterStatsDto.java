@@ -0,0 +1,88 @@
+package ru.hogwarts.school.dto;
+
+import java.util.Objects;
+
+public class RosterStatsDto {
+
+    private int queued;
+    private int active;
+    private long completed;
+    private long rejected;
+    private long timedOut;
+
+    public RosterStatsDto() {
+    }
+
+    public RosterStatsDto(int queued, int active, long completed, long rejected, long timedOut) {
+        this.queued = queued;
+        this.active = active;
+        this.completed = completed;
+        this.rejected = rejected;
+        this.timedOut = timedOut;
+    }
+
+    public int getQueued() {
+        return queued;
+    }
+
+    public void setQueued(int queued) {
+        this.queued = queued;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public void setActive(int active) {
+        this.active = active;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(long completed) {
+        this.completed = completed;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    public long getTimedOut() {
+        return timedOut;
+    }
+
+    public void setTimedOut(long timedOut) {
+        this.timedOut = timedOut;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RosterStatsDto that = (RosterStatsDto) o;
+        return queued == that.queued && active == that.active && completed == that.completed
+                && rejected == that.rejected && timedOut == that.timedOut;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(queued, active, completed, rejected, timedOut);
+    }
+
+    @Override
+    public String toString() {
+        return "RosterStatsDto{" +
+                "queued=" + queued +
+                ", active=" + active +
+                ", completed=" + completed +
+                ", rejected=" + rejected +
+                ", timedOut=" + timedOut +
+                '}';
+    }
+}
@@ -0,0 +1,143 @@
+package ru.hogwarts.school.dto;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+public class StudentAnalyticsDto {
+
+    private long count;
+    private Map<Integer, Long> ageHistogram = new TreeMap<>();
+    private Map<Long, Long> studentsByFaculty = new HashMap<>();
+    private Integer minAge;
+    private Integer maxAge;
+    private Double averageAge;
+    private Map<String, Integer> agePercentiles = new LinkedHashMap<>();
+    private Integer minNameLength;
+    private Integer maxNameLength;
+    private Double averageNameLength;
+
+    public StudentAnalyticsDto() {
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public Map<Integer, Long> getAgeHistogram() {
+        return ageHistogram;
+    }
+
+    public void setAgeHistogram(Map<Integer, Long> ageHistogram) {
+        this.ageHistogram = ageHistogram;
+    }
+
+    public Map<Long, Long> getStudentsByFaculty() {
+        return studentsByFaculty;
+    }
+
+    public void setStudentsByFaculty(Map<Long, Long> studentsByFaculty) {
+        this.studentsByFaculty = studentsByFaculty;
+    }
+
+    public Integer getMinAge() {
+        return minAge;
+    }
+
+    public void setMinAge(Integer minAge) {
+        this.minAge = minAge;
+    }
+
+    public Integer getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(Integer maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    public Double getAverageAge() {
+        return averageAge;
+    }
+
+    public void setAverageAge(Double averageAge) {
+        this.averageAge = averageAge;
+    }
+
+    public Map<String, Integer> getAgePercentiles() {
+        return agePercentiles;
+    }
+
+    public void setAgePercentiles(Map<String, Integer> agePercentiles) {
+        this.agePercentiles = agePercentiles;
+    }
+
+    public Integer getMinNameLength() {
+        return minNameLength;
+    }
+
+    public void setMinNameLength(Integer minNameLength) {
+        this.minNameLength = minNameLength;
+    }
+
+    public Integer getMaxNameLength() {
+        return maxNameLength;
+    }
+
+    public void setMaxNameLength(Integer maxNameLength) {
+        this.maxNameLength = maxNameLength;
+    }
+
+    public Double getAverageNameLength() {
+        return averageNameLength;
+    }
+
+    public void setAverageNameLength(Double averageNameLength) {
+        this.averageNameLength = averageNameLength;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StudentAnalyticsDto that = (StudentAnalyticsDto) o;
+        return count == that.count
+                && Objects.equals(ageHistogram, that.ageHistogram)
+                && Objects.equals(studentsByFaculty, that.studentsByFaculty)
+                && Objects.equals(minAge, that.minAge)
+                && Objects.equals(maxAge, that.maxAge)
+                && Objects.equals(averageAge, that.averageAge)
+                && Objects.equals(agePercentiles, that.agePercentiles)
+                && Objects.equals(minNameLength, that.minNameLength)
+                && Objects.equals(maxNameLength, that.maxNameLength)
+                && Objects.equals(averageNameLength, that.averageNameLength);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(count, ageHistogram, studentsByFaculty, minAge, maxAge, averageAge, agePercentiles,
+                minNameLength, maxNameLength, averageNameLength);
+    }
+
+    @Override
+    public String toString() {
+        return "StudentAnalyticsDto{" +
+                "count=" + count +
+                ", ageHistogram=" + ageHistogram +
+                ", studentsByFaculty=" + studentsByFaculty +
+                ", minAge=" + minAge +
+                ", maxAge=" + maxAge +
+                ", averageAge=" + averageAge +
+                ", agePercentiles=" + agePercentiles +
+                ", minNameLength=" + minNameLength +
+                ", maxNameLength=" + maxNameLength +
+                ", averageNameLength=" + averageNameLength +
+                '}';
+    }
+}
@@ -6,11 +6,12 @@ import ru.hogwarts.school.model.Student;
 import java.util.Objects;
 
 @JsonIgnoreProperties(value = {"facultyDto"})
-public class StudentDto {
+public class StudentDto implements Versioned {
 
     private Long id;
     private String name;
     private Integer age;
+    private Long version;
 
     private FacultyDto facultyDto;
 
@@ -23,6 +24,11 @@ public class StudentDto {
         this.age = age;
     }
 
+    public StudentDto(Long id, String name, Integer age, Long version) {
+        this(id, name, age);
+        this.version = version;
+    }
+
     public static StudentDto toDto(Student student) {
         StudentDto studentDto = new StudentDto();
         if (student.getId() != null) {
@@ -30,6 +36,7 @@ public class StudentDto {
         }
         studentDto.setAge(student.getAge());
         studentDto.setName(student.getName());
+        studentDto.setVersion(student.getVersion());
 //        if(student.getFaculty() != null) {
 //            Faculty faculty = student.getFaculty();
 //            FacultyDto facultyDto = FacultyDto.toDto(faculty);
@@ -43,6 +50,9 @@ public class StudentDto {
         student.setId(dto.getId());
         student.setAge(dto.getAge());
         student.setName(dto.getName());
+        if (dto.getVersion() != null) {
+            student.setVersion(dto.getVersion());
+        }
 //        if (dto.getFacultyDto() != null) {
 //            FacultyDto facultyDto = dto.getFacultyDto();
 //            Faculty faculty = FacultyDto.toEntity(facultyDto);
@@ -75,6 +85,14 @@ public class StudentDto {
         this.age = age;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public FacultyDto getFacultyDto() {
         return facultyDto;
     }
@@ -103,6 +121,7 @@ public class StudentDto {
                 "id=" + id +
                 ", name='" + name + '\'' +
                 ", age=" + age +
+                ", version=" + version +
                 '}';
     }
 }
@@ -0,0 +1,65 @@
+package ru.hogwarts.school.dto;
+
+import java.util.Objects;
+
+public class StudentImportDto {
+
+    private String name;
+    private Integer age;
+    private String facultyName;
+
+    public StudentImportDto() {
+    }
+
+    public StudentImportDto(String name, Integer age, String facultyName) {
+        this.name = name;
+        this.age = age;
+        this.facultyName = facultyName;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Integer getAge() {
+        return age;
+    }
+
+    public void setAge(Integer age) {
+        this.age = age;
+    }
+
+    public String getFacultyName() {
+        return facultyName;
+    }
+
+    public void setFacultyName(String facultyName) {
+        this.facultyName = facultyName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StudentImportDto that = (StudentImportDto) o;
+        return Objects.equals(name, that.name) && Objects.equals(age, that.age) && Objects.equals(facultyName, that.facultyName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, age, facultyName);
+    }
+
+    @Override
+    public String toString() {
+        return "StudentImportDto{" +
+                "name='" + name + '\'' +
+                ", age=" + age +
+                ", facultyName='" + facultyName + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,54 @@
+package ru.hogwarts.school.dto;
+
+import java.util.Objects;
+
+public class StudentImportErrorDto {
+
+    private long row;
+    private String message;
+
+    public StudentImportErrorDto() {
+    }
+
+    public StudentImportErrorDto(long row, String message) {
+        this.row = row;
+        this.message = message;
+    }
+
+    public long getRow() {
+        return row;
+    }
+
+    public void setRow(long row) {
+        this.row = row;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StudentImportErrorDto that = (StudentImportErrorDto) o;
+        return row == that.row && Objects.equals(message, that.message);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(row, message);
+    }
+
+    @Override
+    public String toString() {
+        return "StudentImportErrorDto{" +
+                "row=" + row +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,60 @@
+package ru.hogwarts.school.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+public class StudentImportResultDto {
+
+    private long imported;
+    private List<StudentImportErrorDto> errors = new ArrayList<>();
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getFailed() {
+        return errors.size();
+    }
+
+    public List<StudentImportErrorDto> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<StudentImportErrorDto> errors) {
+        this.errors = errors;
+    }
+
+    public void addImported(long count) {
+        imported += count;
+    }
+
+    public void addError(long row, String message) {
+        errors.add(new StudentImportErrorDto(row, message));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StudentImportResultDto that = (StudentImportResultDto) o;
+        return imported == that.imported && Objects.equals(errors, that.errors);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(imported, errors);
+    }
+
+    @Override
+    public String toString() {
+        return "StudentImportResultDto{" +
+                "imported=" + imported +
+                ", failed=" + getFailed() +
+                '}';
+    }
+}
@@ -0,0 +1,83 @@
+package ru.hogwarts.school.dto;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+public class StudentStatsDto {
+
+    private long count;
+    // студенты с указанным возрастом: среднее делится на них, как AVG(age) в базе
+    private long ageCount;
+    private long ageSum;
+    private Map<Long, Long> studentsByFaculty = new HashMap<>();
+
+    public StudentStatsDto() {
+    }
+
+    public StudentStatsDto(long count, long ageCount, long ageSum, Map<Long, Long> studentsByFaculty) {
+        this.count = count;
+        this.ageCount = ageCount;
+        this.ageSum = ageSum;
+        this.studentsByFaculty = studentsByFaculty;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getAgeCount() {
+        return ageCount;
+    }
+
+    public void setAgeCount(long ageCount) {
+        this.ageCount = ageCount;
+    }
+
+    public long getAgeSum() {
+        return ageSum;
+    }
+
+    public void setAgeSum(long ageSum) {
+        this.ageSum = ageSum;
+    }
+
+    public Map<Long, Long> getStudentsByFaculty() {
+        return studentsByFaculty;
+    }
+
+    public void setStudentsByFaculty(Map<Long, Long> studentsByFaculty) {
+        this.studentsByFaculty = studentsByFaculty;
+    }
+
+    public double getAverageAge() {
+        return ageCount == 0 ? 0 : (double) ageSum / ageCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StudentStatsDto that = (StudentStatsDto) o;
+        return count == that.count && ageCount == that.ageCount && ageSum == that.ageSum && Objects.equals(studentsByFaculty, that.studentsByFaculty);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(count, ageCount, ageSum, studentsByFaculty);
+    }
+
+    @Override
+    public String toString() {
+        return "StudentStatsDto{" +
+                "count=" + count +
+                ", ageCount=" + ageCount +
+                ", ageSum=" + ageSum +
+                ", studentsByFaculty=" + studentsByFaculty +
+                '}';
+    }
+}
@@ -0,0 +1,12 @@
+package ru.hogwarts.school.dto;
+
+/**
+ * DTO сущности с @Version. По id и версии строятся ETag ответов и проверяется If-Match,
+ * поэтому версия не участвует в equals/hashCode: это метаданные строки, а не её содержимое.
+ * null - версия неизвестна (DTO пришёл от клиента без неё).
+ */
+public interface Versioned {
+    Long getId();
+
+    Long getVersion();
+}
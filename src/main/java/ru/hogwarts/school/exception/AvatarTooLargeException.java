@@ -0,0 +1,7 @@
+package ru.hogwarts.school.exception;
+
+public class AvatarTooLargeException extends RuntimeException {
+    public AvatarTooLargeException(String message) {
+        super(message);
+    }
+}
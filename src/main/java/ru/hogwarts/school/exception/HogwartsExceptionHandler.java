@@ -1,7 +1,10 @@
 package ru.hogwarts.school.exception;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -11,13 +14,22 @@ public class HogwartsExceptionHandler {
 
     Logger log = LoggerFactory.getLogger(HogwartsExceptionHandler.class);
 
+    private final MeterRegistry registry;
+
+    public HogwartsExceptionHandler(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
     @ExceptionHandler({
             IncorrectAgeException.class,
+            IncorrectAvatarException.class,
             IncorrectIdException.class,
+            IncorrectPageParameterException.class,
             ParameterIsNullException.class
     })
     public ResponseEntity<String> handleBadRequest(RuntimeException re) {
         log.error("handleBadRequest thrown with message: {}", re.getMessage());
+        count(re, HttpStatus.BAD_REQUEST);
         return ResponseEntity.badRequest().body(re.getMessage());
     }
 
@@ -28,6 +40,48 @@ public class HogwartsExceptionHandler {
     })
     public ResponseEntity<String> handleNotFound(RuntimeException re) {
         log.error("handleNotFound thrown with message: {}", re.getMessage());
+        count(re, HttpStatus.NOT_FOUND);
         return ResponseEntity.notFound().build();
     }
+
+    // строку изменили после того, как клиент прочитал её версию
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleConflict(RuntimeException re) {
+        log.error("handleConflict thrown with message: {}", re.getMessage());
+        count(re, HttpStatus.CONFLICT);
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("Entity was modified concurrently");
+    }
+
+    // версия из If-Match (или из тела запроса) уже не текущая
+    @ExceptionHandler(StaleVersionException.class)
+    public ResponseEntity<String> handlePreconditionFailed(RuntimeException re) {
+        log.error("handlePreconditionFailed thrown with message: {}", re.getMessage());
+        count(re, HttpStatus.PRECONDITION_FAILED);
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(re.getMessage());
+    }
+
+    @ExceptionHandler(AvatarTooLargeException.class)
+    public ResponseEntity<String> handlePayloadTooLarge(RuntimeException re) {
+        log.error("handlePayloadTooLarge thrown with message: {}", re.getMessage());
+        count(re, HttpStatus.PAYLOAD_TOO_LARGE);
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(re.getMessage());
+    }
+
+    // пул обработки занят или вычисление не уложилось в таймаут: запрос можно повторить позже
+    @ExceptionHandler({
+            RosterBusyException.class,
+            ComputationTimeoutException.class
+    })
+    public ResponseEntity<String> handleServiceUnavailable(RuntimeException re) {
+        log.error("handleServiceUnavailable thrown with message: {}", re.getMessage());
+        count(re, HttpStatus.SERVICE_UNAVAILABLE);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(re.getMessage());
+    }
+
+    // school.errors: сколько раз каждое исключение дошло до клиента и с каким статусом
+    private void count(RuntimeException re, HttpStatus status) {
+        registry.counter("school.errors",
+                "exception", re.getClass().getSimpleName(),
+                "status", String.valueOf(status.value())).increment();
+    }
 }
@@ -0,0 +1,7 @@
+package ru.hogwarts.school.exception;
+
+public class IncorrectAvatarException extends RuntimeException {
+    public IncorrectAvatarException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.hogwarts.school.exception;
+
+public class IncorrectPageParameterException extends RuntimeException {
+    public IncorrectPageParameterException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.hogwarts.school.exception;
+
+public class RosterBusyException extends RuntimeException {
+    public RosterBusyException(String message) {
+        super(message);
+    }
+}
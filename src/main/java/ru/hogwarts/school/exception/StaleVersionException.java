@@ -0,0 +1,7 @@
+package ru.hogwarts.school.exception;
+
+public class StaleVersionException extends RuntimeException {
+    public StaleVersionException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,96 @@
+package ru.hogwarts.school.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.cache.FacultyCache;
+import ru.hogwarts.school.cache.RenditionCache;
+import ru.hogwarts.school.cache.StudentStatsCache;
+import ru.hogwarts.school.service.AvatarPreviewService;
+import ru.hogwarts.school.service.RosterProcessor;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Счётчики, которые уже собирают кэши и пулы приложения, в виде метрик: значения читаются при каждом
+ * снятии метрик, отдельного учёта нет. Те же данные отдают эндпоинты *_stats.
+ */
+@Component
+public class SchoolMetrics implements MeterBinder {
+
+    private final FacultyCache facultyCache;
+    private final RenditionCache renditionCache;
+    private final StudentStatsCache studentStats;
+    private final AvatarPreviewService previewService;
+    private final RosterProcessor roster;
+
+    public SchoolMetrics(FacultyCache facultyCache,
+                         RenditionCache renditionCache,
+                         StudentStatsCache studentStats,
+                         AvatarPreviewService previewService,
+                         RosterProcessor roster) {
+        this.facultyCache = facultyCache;
+        this.renditionCache = renditionCache;
+        this.studentStats = studentStats;
+        this.previewService = previewService;
+        this.roster = roster;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counter(registry, "school.cache.hits", "faculty", facultyCache, cache -> cache.getStats().getHits());
+        counter(registry, "school.cache.misses", "faculty", facultyCache, cache -> cache.getStats().getMisses());
+        gauge(registry, "school.cache.size", "faculty", facultyCache, cache -> cache.getStats().getSize());
+        counter(registry, "school.cache.hits", "rendition", renditionCache, cache -> cache.getStats().getHits());
+        counter(registry, "school.cache.misses", "rendition", renditionCache, cache -> cache.getStats().getMisses());
+        gauge(registry, "school.cache.size", "rendition", renditionCache, cache -> cache.getStats().getSize());
+        Gauge.builder("school.cache.bytes", renditionCache, RenditionCache::getTotalBytes)
+                .tag("cache", "rendition")
+                .baseUnit("bytes")
+                .register(registry);
+
+        // без сверки: иначе каждое снятие метрик при устаревшем снимке шло бы в базу
+        Gauge.builder("school.students", studentStats, StudentStatsCache::peekCount)
+                .register(registry);
+
+        Gauge.builder("school.avatar.preview.queued", previewService, service -> service.getStats().getQueued())
+                .register(registry);
+        Gauge.builder("school.avatar.preview.active", previewService, service -> service.getStats().getActive())
+                .register(registry);
+        FunctionCounter.builder("school.avatar.preview.completed", previewService, service -> service.getStats().getCompleted())
+                .register(registry);
+        FunctionCounter.builder("school.avatar.preview.failed", previewService, service -> service.getStats().getFailed())
+                .register(registry);
+        FunctionCounter.builder("school.avatar.preview.retries", previewService, service -> service.getStats().getRetries())
+                .register(registry);
+        FunctionCounter.builder("school.avatar.preview.caller.runs", previewService, service -> service.getStats().getProcessedInCaller())
+                .register(registry);
+        Gauge.builder("school.avatar.preview.processing.avg", previewService, service -> service.getStats().getAverageProcessingMillis())
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("school.avatar.preview.processing.max", previewService, service -> service.getStats().getMaxProcessingMillis())
+                .baseUnit("milliseconds")
+                .register(registry);
+
+        Gauge.builder("school.roster.queued", roster, processor -> processor.getStats().getQueued())
+                .register(registry);
+        Gauge.builder("school.roster.active", roster, processor -> processor.getStats().getActive())
+                .register(registry);
+        FunctionCounter.builder("school.roster.completed", roster, processor -> processor.getStats().getCompleted())
+                .register(registry);
+        FunctionCounter.builder("school.roster.rejected", roster, processor -> processor.getStats().getRejected())
+                .register(registry);
+        FunctionCounter.builder("school.roster.timed.out", roster, processor -> processor.getStats().getTimedOut())
+                .register(registry);
+    }
+
+    private static <T> void counter(MeterRegistry registry, String name, String cache, T source, ToDoubleFunction<T> value) {
+        FunctionCounter.builder(name, source, value).tag("cache", cache).register(registry);
+    }
+
+    private static <T> void gauge(MeterRegistry registry, String name, String cache, T source, ToDoubleFunction<T> value) {
+        Gauge.builder(name, source, value).tag("cache", cache).register(registry);
+    }
+}
@@ -0,0 +1,73 @@
+package ru.hogwarts.school.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.dto.KeysetPageDto;
+
+import java.util.Collection;
+
+/**
+ * Таймер на каждый публичный метод сервисов: school.service.method с тегами class, method и exception
+ * (none, если метод завершился без исключения). Для методов, которые возвращают коллекцию или страницу,
+ * размер результата пишется в school.service.result.size. Вызовы методов сервиса изнутри него же
+ * через прокси не идут и не замеряются.
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+
+    static final String TIMER = "school.service.method";
+    static final String RESULT_SIZE = "school.service.result.size";
+
+    private final MeterRegistry registry;
+
+    public ServiceMetricsAspect(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    // AvatarPreviewService не замеряется: его работа идёт в фоне и уже видна в school.avatar.preview.*,
+    // а getStats вызывается при каждом снятии метрик
+    @Around("within(ru.hogwarts.school.service..*) && @within(org.springframework.stereotype.Service) " +
+            "&& !within(ru.hogwarts.school.service.AvatarPreviewService) && execution(public * *(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        String className = joinPoint.getSignature().getDeclaringType().getSimpleName();
+        String methodName = joinPoint.getSignature().getName();
+        Timer.Sample sample = Timer.start(registry);
+        String exception = "none";
+        try {
+            Object result = joinPoint.proceed();
+            recordSize(className, methodName, result);
+            return result;
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(TIMER)
+                    .tag("class", className)
+                    .tag("method", methodName)
+                    .tag("exception", exception)
+                    .register(registry));
+        }
+    }
+
+    private void recordSize(String className, String methodName, Object result) {
+        int size;
+        if (result instanceof Collection<?> collection) {
+            size = collection.size();
+        } else if (result instanceof KeysetPageDto<?> page) {
+            size = page.getContent().size();
+        } else {
+            return;
+        }
+        DistributionSummary.builder(RESULT_SIZE)
+                .tag("class", className)
+                .tag("method", methodName)
+                .register(registry)
+                .record(size);
+    }
+}
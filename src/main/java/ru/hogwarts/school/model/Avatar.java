@@ -7,15 +7,27 @@ import java.util.Objects;
 @Entity
 public class Avatar {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "avatar_seq")
+    @SequenceGenerator(name = "avatar_seq", sequenceName = "avatar_seq", allocationSize = 50)
     private Long id;
     private String filePath;
     private long fileSize;
     private String mediaType;
-    @Lob
-    private byte[] data;
+    // SHA-256 файла и размеры картинки, посчитанные при загрузке (AvatarFileStore)
+    @Column(length = 64)
+    private String contentHash;
+    private Integer width;
+    private Integer height;
+    // SHA-256 превью в preview_blob; сами байты с аватаркой не загружаются
+    @Column(length = 64)
+    private String previewHash;
+    // превью строится в фоне (AvatarPreviewService): пока статус PROCESSING, previewHash пустой
+    @Enumerated(EnumType.STRING)
+    private PreviewStatus previewStatus;
     @OneToOne
     private Student student;
+    @Version
+    private long version;
 
     public Long getId() {
         return id;
@@ -49,12 +61,44 @@ public class Avatar {
         this.mediaType = mediaType;
     }
 
-    public byte[] getData() {
-        return data;
+    public String getContentHash() {
+        return contentHash;
     }
 
-    public void setData(byte[] data) {
-        this.data = data;
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    public String getPreviewHash() {
+        return previewHash;
+    }
+
+    public void setPreviewHash(String previewHash) {
+        this.previewHash = previewHash;
+    }
+
+    public PreviewStatus getPreviewStatus() {
+        return previewStatus;
+    }
+
+    public void setPreviewStatus(PreviewStatus previewStatus) {
+        this.previewStatus = previewStatus;
     }
 
     public Student getStudent() {
@@ -65,6 +109,14 @@ public class Avatar {
         this.student = student;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -80,14 +132,18 @@ public class Avatar {
 
     @Override
     public String toString() {
-        int dataLength = data == null ? 0 : data.length;
         return "Avatar{" +
                 "id=" + id +
                 ", filePath='" + filePath + '\'' +
                 ", fileSize=" + fileSize +
                 ", mediaType='" + mediaType + '\'' +
-                ", data length=" + dataLength +
+                ", contentHash='" + contentHash + '\'' +
+                ", width=" + width +
+                ", height=" + height +
+                ", previewHash='" + previewHash + '\'' +
+                ", previewStatus=" + previewStatus +
                 ", student=" + student +
+                ", version=" + version +
                 '}';
     }
 }
@@ -10,12 +10,16 @@ import java.util.Objects;
 public class Faculty {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "faculty_seq")
+    @SequenceGenerator(name = "faculty_seq", sequenceName = "faculty_seq", allocationSize = 50)
     private Long id;
     private String name;
     private String color;
+    @Version
+    private long version;
 
-    @OneToMany(mappedBy = "faculty", fetch = FetchType.EAGER, cascade = CascadeType.REMOVE)
+    // LAZY: студенты факультета читаются DTO-запросами StudentRepository, а не через эту коллекцию
+    @OneToMany(mappedBy = "faculty", fetch = FetchType.LAZY, cascade = CascadeType.REMOVE)
     private Collection<Student> students;
 
     public Faculty(Long id, String name, String color) {
@@ -51,6 +55,14 @@ public class Faculty {
         this.color = color;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public Collection<Student> getStudents() {
         return students == null
                 ? new ArrayList<>()
@@ -80,6 +92,7 @@ public class Faculty {
                 "id=" + id +
                 ", name='" + name + '\'' +
                 ", color='" + color + '\'' +
+                ", version=" + version +
                 '}';
     }
 }
@@ -0,0 +1,63 @@
+package ru.hogwarts.school.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+import java.util.Objects;
+
+// содержимое превью, ключ - SHA-256 от байтов: одинаковые картинки хранятся один раз
+@Entity
+public class PreviewBlob {
+    @Id
+    @Column(length = 64)
+    private String hash;
+    @Column(nullable = false)
+    private byte[] data;
+
+    public PreviewBlob() {
+    }
+
+    public PreviewBlob(String hash, byte[] data) {
+        this.hash = hash;
+        this.data = data;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PreviewBlob that = (PreviewBlob) o;
+        return Objects.equals(hash, that.hash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(hash);
+    }
+
+    @Override
+    public String toString() {
+        int dataLength = data == null ? 0 : data.length;
+        return "PreviewBlob{" +
+                "hash='" + hash + '\'' +
+                ", data length=" + dataLength +
+                '}';
+    }
+}
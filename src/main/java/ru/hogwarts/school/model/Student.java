@@ -8,10 +8,14 @@ import java.util.Objects;
 public class Student {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "student_seq")
+    @SequenceGenerator(name = "student_seq", sequenceName = "student_seq", allocationSize = 50)
     private Long id;
     private String name;
     private Integer age;
+    // long, а не Long: Spring Data по null-версии решил бы, что сущность новая, и вызвал бы persist вместо merge
+    @Version
+    private long version;
 
     @ManyToOne
     @JoinColumn(name = "faculty_id")
@@ -50,6 +54,14 @@ public class Student {
         this.age = age;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     public Faculty getFaculty() {
         return faculty;
     }
@@ -78,6 +90,7 @@ public class Student {
                 "id=" + id +
                 ", name='" + name + '\'' +
                 ", age=" + age +
+                ", version=" + version +
                 '}';
     }
 }
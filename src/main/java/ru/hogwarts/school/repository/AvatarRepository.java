@@ -1,10 +1,32 @@
 package ru.hogwarts.school.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.PreviewStatus;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface AvatarRepository extends JpaRepository<Avatar, Long> {
     Optional<Avatar> findByStudentId(long studentId);
+    List<Avatar> findByIdGreaterThanOrderByIdAsc(long afterId, Limit limit);
+    List<Avatar> findByIdInOrderByIdAsc(Collection<Long> ids);
+
+    @Query("SELECT a.id AS id, a.contentHash AS contentHash FROM Avatar a WHERE a.previewStatus = :status")
+    List<PendingPreview> findPendingPreviews(PreviewStatus status);
+
+    // обновляются только превью и статус: остальные поля аватарки могли поменяться, пока превью строилось.
+    // Строка обновляется, только если файл всё ещё тот, из которого строилось превью: 0 - аватарку перезалили,
+    // и превью построит задача нового файла. content_hash null у аватарок, загруженных до его появления.
+    // Версия увеличивается вручную: JPQL UPDATE её не трогает, а от неё зависит ETag аватарки
+    @Transactional
+    @Modifying
+    @Query("UPDATE Avatar a SET a.previewHash = :previewHash, a.previewStatus = :status, a.version = a.version + 1 " +
+            "WHERE a.id = :id AND (a.contentHash = :contentHash OR (a.contentHash IS NULL AND :contentHash IS NULL))")
+    int updatePreview(long id, String contentHash, String previewHash, PreviewStatus status);
 }
@@ -1,16 +1,44 @@
 package ru.hogwarts.school.repository;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 import ru.hogwarts.school.model.Faculty;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface FacultyRepository extends JpaRepository<Faculty, Long> {
     Collection<Faculty> findAllByColorIgnoreCase(String facultyColor);
     Collection<Faculty> findByNameIgnoreCaseOrColorIgnoreCase(String name, String color);
     Optional<Faculty> findByNameIgnoreCase(String facultyName);
-    @Query(value = "SELECT * FROM faculty ORDER BY RANDOM() LIMIT 1", nativeQuery = true)
+
+    List<Faculty> findByIdGreaterThanOrderByIdAsc(long afterId, Limit limit);
+    // без сортировки всей таблицы: случайная точка между MIN(id) и MAX(id) и первый факультет не меньше неё,
+    // всё по индексу первичного ключа. Факультет после дыры в id выпадает чаще, для запасного пути это допустимо
+    @Query(value = "SELECT * FROM faculty " +
+            "WHERE id >= (SELECT MIN(id) + CAST(FLOOR(RANDOM() * (MAX(id) - MIN(id) + 1)) AS BIGINT) FROM faculty) " +
+            "ORDER BY id LIMIT 1", nativeQuery = true)
     Optional<Faculty> findRandom();
+
+    @Query(value = "SELECT faculty_id AS \"facultyId\", COUNT(*) AS \"studentCount\" FROM student " +
+            "WHERE faculty_id IS NOT NULL GROUP BY faculty_id", nativeQuery = true)
+    List<FacultyStudentCount> countStudentsByFaculty();
+
+    // в PostgreSQL NULL при DESC идёт первым: без фильтра факультет без имени "длиннее" всех
+    @Query(value = "SELECT name FROM faculty WHERE name IS NOT NULL ORDER BY LENGTH(name) DESC, id LIMIT 1",
+            nativeQuery = true)
+    Optional<String> findLongestName();
+
+    // факультет вместе со студентами одним запросом вместо CascadeType.REMOVE по одной строке.
+    // Внешний ключ student.faculty_id проверяется в конце запроса, когда студентов уже нет.
+    // 0 - факультета не было
+    @Transactional
+    @Modifying
+    @Query(value = "WITH deleted_students AS (DELETE FROM student WHERE faculty_id = :id) " +
+            "DELETE FROM faculty WHERE id = :id", nativeQuery = true)
+    int deleteWithStudents(long id);
 }
@@ -0,0 +1,6 @@
+package ru.hogwarts.school.repository;
+
+public interface FacultyStudentCount {
+    Long getFacultyId();
+    Long getStudentCount();
+}
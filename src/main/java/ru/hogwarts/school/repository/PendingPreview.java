@@ -0,0 +1,7 @@
+package ru.hogwarts.school.repository;
+
+// аватарка, превью которой ещё не построено: задача привязана к содержимому файла, а не только к id
+public interface PendingPreview {
+    Long getId();
+    String getContentHash();
+}
@@ -0,0 +1,32 @@
+package ru.hogwarts.school.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.model.PreviewBlob;
+
+import java.util.Optional;
+
+public interface PreviewBlobRepository extends JpaRepository<PreviewBlob, String> {
+
+    // блокировка до конца транзакции: пока аватарка не сослалась на превью, release не может его удалить
+    @Query(value = "SELECT hash FROM preview_blob WHERE hash = :hash FOR SHARE", nativeQuery = true)
+    Optional<String> lockShared(String hash);
+
+    // ждёт транзакции, которые держат FOR SHARE, чтобы проверка ссылок увидела их preview_hash
+    @Query(value = "SELECT hash FROM preview_blob WHERE hash = :hash FOR UPDATE", nativeQuery = true)
+    Optional<String> lockForDelete(String hash);
+
+    // одно и то же превью могут сохранять параллельно: второй INSERT ничего не делает вместо ошибки ключа
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO preview_blob (hash, data) VALUES (:hash, :data) ON CONFLICT (hash) DO NOTHING",
+            nativeQuery = true)
+    int insertIfAbsent(String hash, byte[] data);
+
+    @Modifying
+    @Query(value = "DELETE FROM preview_blob b WHERE b.hash = :hash " +
+            "AND NOT EXISTS (SELECT 1 FROM avatar a WHERE a.preview_hash = :hash)", nativeQuery = true)
+    int deleteIfUnreferenced(String hash);
+}
@@ -0,0 +1,10 @@
+package ru.hogwarts.school.repository;
+
+public interface StudentAgeGroup {
+    Integer getAge();
+    Long getFacultyId();
+    Long getStudentCount();
+    Long getNameLengthSum();
+    Integer getMinNameLength();
+    Integer getMaxNameLength();
+}
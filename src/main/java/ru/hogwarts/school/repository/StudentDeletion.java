@@ -0,0 +1,7 @@
+package ru.hogwarts.school.repository;
+
+// удалённая строка из StudentRepository.deleteReturning: возраст и факультет нужны для дельты StudentStatsCache
+public interface StudentDeletion {
+    Integer getAge();
+    Long getFacultyId();
+}
@@ -1,21 +1,115 @@
 package ru.hogwarts.school.repository;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.dto.StudentDto;
 import ru.hogwarts.school.model.Student;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 public interface StudentRepository extends JpaRepository<Student, Long> {
     Collection<Student> findAllByAge(int studentAge);
     Collection<Student> findByAgeBetween(int min, int max);
 
+    // keyset-пагинация: WHERE id > ? ORDER BY id LIMIT ? идёт по первичному ключу, OFFSET не нужен
+    List<Student> findByIdGreaterThanOrderByIdAsc(long afterId, Limit limit);
+    List<Student> findByAgeBetweenAndIdGreaterThanOrderByIdAsc(int min, int max, long afterId, Limit limit);
+
+    // студенты факультета сразу в DTO: без сущностей студентов и факультета в persistence context
+    @Query("SELECT new ru.hogwarts.school.dto.StudentDto(s.id, s.name, s.age, s.version) FROM Student s " +
+            "WHERE LOWER(s.faculty.name) = LOWER(:facultyName) ORDER BY s.id")
+    List<StudentDto> findDtoByFacultyName(String facultyName);
+
+    @Query("SELECT new ru.hogwarts.school.dto.StudentDto(s.id, s.name, s.age, s.version) FROM Student s " +
+            "WHERE LOWER(s.faculty.name) = LOWER(:facultyName) AND s.id > :afterId ORDER BY s.id")
+    List<StudentDto> findDtoByFacultyNameAfter(String facultyName, long afterId, Limit limit);
+
     @Query(value = "SELECT COUNT(*) AS count FROM student", nativeQuery = true)
     long count();
 
-    @Query(value = "SELECT AVG(student.age) AS avg_age FROM student", nativeQuery = true)
-    int avgAge();
+    // одна строка на факультет (и одна для студентов без факультета): из них собираются count, сумма возрастов и разбивка.
+    // COUNT(age), как и AVG, не считает студентов без возраста
+    @Query(value = "SELECT faculty_id AS \"facultyId\", COUNT(*) AS \"studentCount\", " +
+            "COUNT(age) AS \"ageCount\", COALESCE(SUM(age), 0) AS \"ageSum\" " +
+            "FROM student GROUP BY faculty_id", nativeQuery = true)
+    List<StudentTotals> sumByFaculty();
+
+    // группа на каждую пару (возраст, факультет): строк в ответе столько, сколько разных возрастов на факультетах,
+    // а не студентов. Из них считается вся аналитика
+    @Query(value = "SELECT age AS \"age\", faculty_id AS \"facultyId\", COUNT(*) AS \"studentCount\", " +
+            "COALESCE(SUM(LENGTH(name)), 0) AS \"nameLengthSum\", " +
+            "MIN(LENGTH(name)) AS \"minNameLength\", MAX(LENGTH(name)) AS \"maxNameLength\" " +
+            "FROM student GROUP BY age, faculty_id", nativeQuery = true)
+    List<StudentAgeGroup> groupByAgeAndFaculty();
+
+    // LIKE 'A%' идёт по student_name_pattern_index; COLLATE "C" сортирует так же, как String.compareTo
+    @Query(value = "SELECT DISTINCT UPPER(name) COLLATE \"C\" AS upper_name FROM student " +
+            "WHERE name LIKE 'A%' ORDER BY upper_name", nativeQuery = true)
+    List<String> findUpperCaseNamesStartingWithA();
 
     @Query(value = "select * from student s order by id desc limit 5", nativeQuery = true)
     Collection<Student> findFileLastStudents();
+
+    /**
+     * Правка имени и возраста одним запросом. version = null - без проверки версии.
+     * Пусто, если студента нет или его версия уже не равна version. Self-join в FROM видит строку
+     * до обновления, поэтому RETURNING отдаёт и старый возраст, и новую версию.
+     */
+    @Transactional
+    @Query(value = "UPDATE student s SET name = :name, age = :age, version = s.version + 1 " +
+            "FROM student old " +
+            "WHERE s.id = :id AND old.id = s.id AND (CAST(:version AS BIGINT) IS NULL OR s.version = :version) " +
+            "RETURNING old.age AS \"oldAge\", s.version AS \"version\"", nativeQuery = true)
+    Optional<StudentUpdate> updateVersioned(long id, String name, Integer age, Long version);
+
+    // пусто, если студента не было: проверка существования и удаление - один запрос
+    @Transactional
+    @Query(value = "DELETE FROM student WHERE id = :id RETURNING age AS \"age\", faculty_id AS \"facultyId\"",
+            nativeQuery = true)
+    Optional<StudentDeletion> deleteReturning(long id);
+
+    // массовые операции: один запрос на весь набор строк, в ответе - число затронутых.
+    // Версия увеличивается вручную, чтобы ETag'и изменённых студентов перестали совпадать
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE student SET faculty_id = :toFacultyId, version = version + 1 " +
+            "WHERE faculty_id = :fromFacultyId", nativeQuery = true)
+    int moveToFaculty(long fromFacultyId, long toFacultyId);
+
+    // студенты без возраста не меняются; facultyId = null - все факультеты
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE student SET age = age + :years, version = version + 1 " +
+            "WHERE age IS NOT NULL AND (CAST(:facultyId AS BIGINT) IS NULL OR faculty_id = :facultyId)", nativeQuery = true)
+    int incrementAges(int years, Long facultyId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM student WHERE id IN (:ids)", nativeQuery = true)
+    int deleteAllByIdIn(Collection<Long> ids);
+
+    // null в параметре - условие не применяется
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM student " +
+            "WHERE (CAST(:facultyId AS BIGINT) IS NULL OR faculty_id = :facultyId) " +
+            "AND (CAST(:minAge AS INTEGER) IS NULL OR age >= :minAge) " +
+            "AND (CAST(:maxAge AS INTEGER) IS NULL OR age <= :maxAge)", nativeQuery = true)
+    int deleteByFilter(Long facultyId, Integer minAge, Integer maxAge);
+
+    // курсор на стороне сервера: строки приходят пачками по fetch size и сразу становятся DTO,
+    // поэтому persistence context не растёт. Работает только внутри транзакции
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new ru.hogwarts.school.dto.StudentDto(s.id, s.name, s.age, s.version) FROM Student s ORDER BY s.id")
+    Stream<StudentDto> streamAll();
 }
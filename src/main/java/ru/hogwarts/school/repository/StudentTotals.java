@@ -0,0 +1,8 @@
+package ru.hogwarts.school.repository;
+
+public interface StudentTotals {
+    Long getFacultyId();
+    Long getStudentCount();
+    Long getAgeCount();
+    Long getAgeSum();
+}
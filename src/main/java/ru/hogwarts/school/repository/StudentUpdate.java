@@ -0,0 +1,7 @@
+package ru.hogwarts.school.repository;
+
+// результат StudentRepository.updateVersioned: возраст до правки нужен для дельты StudentStatsCache
+public interface StudentUpdate {
+    Integer getOldAge();
+    Long getVersion();
+}
@@ -0,0 +1,215 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.hogwarts.school.exception.AvatarTooLargeException;
+import ru.hogwarts.school.exception.IncorrectAvatarException;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Сохранение загруженной аватарки за один проход по байтам: поток пишется во временный файл рядом
+ * с целевым, по пути считается SHA-256, проверяются размер и сигнатура формата. Ширина и высота
+ * читаются из заголовка без декодирования картинки, после чего файл атомарно заменяет старый.
+ */
+@Component
+public class AvatarFileStore {
+
+    Logger log = LoggerFactory.getLogger(AvatarFileStore.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final long maxSize;
+    private final int maxDimension;
+
+    public AvatarFileStore(@Value("${avatar.upload.max-size}") DataSize maxSize,
+                           @Value("${avatar.upload.max-dimension}") int maxDimension) {
+        this.maxSize = maxSize.toBytes();
+        this.maxDimension = maxDimension;
+    }
+
+    // файл сохраняется как folder/baseName.<расширение формата>
+    public StoredFile store(InputStream in, Path folder, String baseName) throws IOException {
+        log.debug("Method store called with parameters: {}, {}", folder, baseName);
+
+        Files.createDirectories(folder);
+        Path temp = Files.createTempFile(folder, baseName + "-", ".upload");
+        try {
+            MessageDigest digest = sha256();
+            ImageFormat format = null;
+            long size = 0;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (OutputStream os = Files.newOutputStream(temp)) {
+                int read;
+                while ((read = in.readNBytes(buffer, 0, buffer.length)) > 0) {
+                    if (format == null) {
+                        // не картинку отбрасываем по первому блоку, не дочитывая запрос
+                        format = ImageFormat.detect(buffer, read);
+                    }
+                    size += read;
+                    if (size > maxSize) {
+                        throw new AvatarTooLargeException("Avatar can't be larger than " + maxSize + " bytes");
+                    }
+                    digest.update(buffer, 0, read);
+                    os.write(buffer, 0, read);
+                }
+            }
+            if (format == null) {
+                throw new IncorrectAvatarException("Avatar file is empty");
+            }
+
+            int[] dimensions = readDimensions(temp);
+            StoredFile result = new StoredFile(folder.resolve(baseName + "." + format.extension), size,
+                    format.mediaType, HexFormat.of().formatHex(digest.digest()), dimensions[0], dimensions[1]);
+            move(temp, result.getPath());
+
+            log.debug("Method store completed with result: {}", result);
+            return result;
+        } finally {
+            // после удачного переноса временного файла уже нет
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // {ширина, высота}
+    private int[] readDimensions(Path file) throws IOException {
+        int width;
+        int height;
+        try (ImageInputStream iis = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) {
+                throw new IncorrectAvatarException("Avatar is not a readable image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                width = reader.getWidth(0);
+                height = reader.getHeight(0);
+            } catch (IOException e) {
+                throw new IncorrectAvatarException("Avatar image header is broken");
+            } finally {
+                reader.dispose();
+            }
+        }
+        if (width > maxDimension || height > maxDimension) {
+            throw new IncorrectAvatarException("Avatar can't be larger than " + maxDimension + "x" + maxDimension + " pixels");
+        }
+        return new int[]{width, height};
+    }
+
+    private void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, REPLACE_EXISTING);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // форматы, для которых ImageIO умеет и читать файл, и писать превью
+    private enum ImageFormat {
+        PNG("image/png", "png", new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}),
+        JPEG("image/jpeg", "jpg", new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF}),
+        GIF("image/gif", "gif", new byte[]{'G', 'I', 'F', '8'});
+
+        private final String mediaType;
+        private final String extension;
+        private final byte[] signature;
+
+        ImageFormat(String mediaType, String extension, byte[] signature) {
+            this.mediaType = mediaType;
+            this.extension = extension;
+            this.signature = signature;
+        }
+
+        static ImageFormat detect(byte[] header, int length) {
+            for (ImageFormat format : values()) {
+                if (length >= format.signature.length
+                        && Arrays.equals(header, 0, format.signature.length, format.signature, 0, format.signature.length)) {
+                    return format;
+                }
+            }
+            throw new IncorrectAvatarException("Avatar must be a PNG, JPEG or GIF image");
+        }
+    }
+
+    public static class StoredFile {
+        private final Path path;
+        private final long size;
+        private final String mediaType;
+        private final String contentHash;
+        private final int width;
+        private final int height;
+
+        StoredFile(Path path, long size, String mediaType, String contentHash, int width, int height) {
+            this.path = path;
+            this.size = size;
+            this.mediaType = mediaType;
+            this.contentHash = contentHash;
+            this.width = width;
+            this.height = height;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getMediaType() {
+            return mediaType;
+        }
+
+        public String getContentHash() {
+            return contentHash;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public String toString() {
+            return "StoredFile{" +
+                    "path=" + path +
+                    ", size=" + size +
+                    ", mediaType='" + mediaType + '\'' +
+                    ", contentHash='" + contentHash + '\'' +
+                    ", width=" + width +
+                    ", height=" + height +
+                    '}';
+        }
+    }
+}
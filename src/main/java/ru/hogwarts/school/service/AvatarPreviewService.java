@@ -0,0 +1,251 @@
+package ru.hogwarts.school.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.dto.AvatarPreviewStatsDto;
+import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.PreviewStatus;
+import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.repository.PendingPreview;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Построение превью аватарок в фоне. Задачи идут в ограниченную очередь и обрабатываются своим пулом потоков.
+ * Если очередь заполнена, превью строится в потоке, который его запросил: загрузки замедляются,
+ * а очередь не растёт без предела. Ошибки чтения файла и базы повторяются до maxAttempts раз,
+ * файл, который не удалось декодировать как картинку, сразу получает статус FAILED.
+ */
+@Service
+public class AvatarPreviewService {
+
+    Logger log = LoggerFactory.getLogger(AvatarPreviewService.class);
+
+    private static final int PREVIEW_WIDTH = 100;
+
+    private final AvatarRepository repository;
+    private final PreviewBlobService blobService;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor executor;
+    private final int maxAttempts;
+    private final long retryDelayMillis;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong processedInCaller = new AtomicLong();
+    private final AtomicLong processingNanos = new AtomicLong();
+    private final AtomicLong maxProcessingNanos = new AtomicLong();
+
+    public AvatarPreviewService(AvatarRepository repository,
+                                PreviewBlobService blobService,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${avatar.preview.threads}") int threads,
+                                @Value("${avatar.preview.queue-capacity}") int queueCapacity,
+                                @Value("${avatar.preview.max-attempts}") int maxAttempts,
+                                @Value("${avatar.preview.retry-delay}") Duration retryDelay,
+                                @Value("${spring.threads.virtual.enabled}") boolean virtualThreads) {
+        this.repository = repository;
+        this.blobService = blobService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMillis = retryDelay.toMillis();
+        // с виртуальными потоками threads по-прежнему ограничивает число одновременных задач и соединений с базой
+        ThreadFactory threadFactory;
+        if (virtualThreads) {
+            threadFactory = new VirtualThreadTaskExecutor("avatar-preview-").getVirtualThreadFactory();
+        } else {
+            AtomicInteger threadNumber = new AtomicInteger();
+            threadFactory = task -> new Thread(task, "avatar-preview-" + threadNumber.incrementAndGet());
+        }
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory,
+                (task, pool) -> {
+                    if (pool.isShutdown()) {
+                        log.warn("Avatar preview task rejected: executor is shut down");
+                        return;
+                    }
+                    processedInCaller.incrementAndGet();
+                    task.run();
+                });
+    }
+
+    // contentHash - хэш файла, для которого строится превью: если аватарку успеют перезалить,
+    // превью старого файла не перезапишет превью нового
+    public void submit(long avatarId, String contentHash) {
+        log.debug("Method submit called with parameters: {}, {}", avatarId, contentHash);
+
+        executor.execute(() -> process(avatarId, contentHash));
+    }
+
+    // превью, которые не успели построиться до остановки приложения, ставятся в очередь заново
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePending() {
+        List<PendingPreview> pending = repository.findPendingPreviews(PreviewStatus.PROCESSING);
+        if (!pending.isEmpty()) {
+            log.info("Resuming {} pending avatar previews", pending.size());
+            pending.forEach(avatar -> submit(avatar.getId(), avatar.getContentHash()));
+        }
+    }
+
+    public AvatarPreviewStatsDto getStats() {
+        long finished = completed.get() + failed.get();
+        double averageMillis = finished == 0 ? 0 : processingNanos.get() / 1_000_000d / finished;
+        return new AvatarPreviewStatsDto(
+                executor.getQueue().size(),
+                executor.getActiveCount(),
+                completed.get(),
+                failed.get(),
+                retries.get(),
+                processedInCaller.get(),
+                averageMillis,
+                maxProcessingNanos.get() / 1_000_000d);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Avatar preview tasks did not finish in 30 seconds, {} left in queue", executor.getQueue().size());
+            executor.shutdownNow();
+        }
+    }
+
+    private void process(long avatarId, String contentHash) {
+        long start = System.nanoTime();
+        PreviewStatus status = PreviewStatus.FAILED;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                Optional<Avatar> avatar = repository.findById(avatarId);
+                if (avatar.isEmpty()) {
+                    log.debug("Avatar {} was deleted before its preview was generated", avatarId);
+                    return;
+                }
+                if (!Objects.equals(avatar.get().getContentHash(), contentHash)) {
+                    log.debug("Avatar {} was replaced before its preview was generated", avatarId);
+                    return;
+                }
+                byte[] preview = generatePreview(Path.of(avatar.get().getFilePath()));
+                if (preview == null) {
+                    log.warn("Avatar {} is not a readable image, preview is not generated", avatarId);
+                    repository.updatePreview(avatarId, contentHash, null, PreviewStatus.FAILED);
+                } else if (attachPreview(avatarId, contentHash, preview)) {
+                    status = PreviewStatus.READY;
+                } else {
+                    log.debug("Avatar {} was replaced while its preview was generated", avatarId);
+                    return;
+                }
+                break;
+            } catch (IOException | DataAccessException e) {
+                if (attempt == maxAttempts) {
+                    log.error("Preview of avatar {} failed after {} attempts", avatarId, attempt, e);
+                    markFailed(avatarId, contentHash);
+                    break;
+                }
+                retries.incrementAndGet();
+                log.debug("Preview of avatar {} failed on attempt {}, retrying: {}", avatarId, attempt, e.getMessage());
+                if (!sleep(retryDelayMillis * attempt)) {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                // битый файл, с которым падает декодер: повтор не поможет
+                log.error("Preview of avatar {} failed", avatarId, e);
+                markFailed(avatarId, contentHash);
+                break;
+            }
+        }
+
+        (status == PreviewStatus.READY ? completed : failed).incrementAndGet();
+        long elapsed = System.nanoTime() - start;
+        processingNanos.addAndGet(elapsed);
+        maxProcessingNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    // превью и ссылка на него в одной транзакции: иначе release успеет удалить превью до ссылки.
+    // false - файл аватарки уже другой, и сохранённое превью никому не нужно
+    private boolean attachPreview(long avatarId, String contentHash, byte[] preview) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(tx -> {
+            String previewHash = blobService.put(preview);
+            if (repository.updatePreview(avatarId, contentHash, previewHash, PreviewStatus.READY) > 0) {
+                return true;
+            }
+            blobService.release(previewHash);
+            return false;
+        }));
+    }
+
+    private void markFailed(long avatarId, String contentHash) {
+        try {
+            repository.updatePreview(avatarId, contentHash, null, PreviewStatus.FAILED);
+        } catch (DataAccessException e) {
+            log.error("Could not mark preview of avatar {} as failed", avatarId, e);
+        }
+    }
+
+    private boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // null, если ImageIO не смог прочитать файл как картинку или записать превью в этом формате.
+    // Не private ради AvatarPreviewBenchmark
+    byte[] generatePreview(Path filePath) throws IOException {
+        log.debug("Method generatePreview called with parameters: {}", filePath);
+
+        try (InputStream is = Files.newInputStream(filePath);
+             BufferedInputStream bis = new BufferedInputStream(is, 64 * 1024);
+             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+            BufferedImage image = ImageIO.read(bis);
+            if (image == null) {
+                return null;
+            }
+
+            BufferedImage preview = ImageScaler.scale(image, PREVIEW_WIDTH, ImageScaler.typeOf(image));
+
+            String fileName = filePath.getFileName().toString();
+            if (!ImageIO.write(preview, fileName.substring(fileName.lastIndexOf(".") + 1), baos)) {
+                return null;
+            }
+            byte[] result = baos.toByteArray();
+
+            log.debug("Method generatePreview completed with result length: {}", result.length);
+            return result;
+        }
+    }
+}
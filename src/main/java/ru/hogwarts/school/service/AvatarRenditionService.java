@@ -0,0 +1,192 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.hogwarts.school.cache.RenditionCache;
+import ru.hogwarts.school.dto.AvatarDto;
+import ru.hogwarts.school.dto.CacheStatsDto;
+import ru.hogwarts.school.exception.IncorrectAvatarException;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Рендишены аватарок заданных ширин. Запрошенная ширина округляется вверх до ближайшей из sizes,
+ * рендишен строится при первом запросе, сохраняется на диск и дальше читается из {@link RenditionCache}.
+ * Файлы названы по SHA-256 оригинала, поэтому после новой загрузки старые рендишены не отдаются.
+ * Картинки без прозрачности (JPEG) кодируются в JPEG с качеством jpegQuality, PNG и GIF - в PNG.
+ */
+@Service
+public class AvatarRenditionService {
+
+    Logger log = LoggerFactory.getLogger(AvatarRenditionService.class);
+
+    private final RenditionCache cache;
+    private final List<Integer> sizes;
+    private final Path folder;
+    private final float jpegQuality;
+
+    public AvatarRenditionService(RenditionCache cache,
+                                  @Value("${avatar.rendition.sizes}") List<Integer> sizes,
+                                  @Value("${avatar.rendition.folder}") Path folder,
+                                  @Value("${avatar.rendition.jpeg-quality}") float jpegQuality) {
+        this.cache = cache;
+        this.sizes = sizes.stream().sorted().toList();
+        this.folder = folder;
+        this.jpegQuality = jpegQuality;
+    }
+
+    // ключ рендишена: имя файла без расширения, он же ETag
+    public String key(AvatarDto avatar, int requestedWidth) {
+        return sourceKey(avatar) + "_" + width(requestedWidth);
+    }
+
+    public String mediaType(AvatarDto avatar) {
+        return isJpeg(avatar) ? "image/jpeg" : "image/png";
+    }
+
+    public byte[] get(AvatarDto avatar, int requestedWidth) throws IOException {
+        log.debug("Method get called with parameters: {}, {}", avatar.getId(), requestedWidth);
+
+        String key = key(avatar, requestedWidth);
+        byte[] result = cache.get(key);
+        if (result == null) {
+            Path file = folder.resolve(key + (isJpeg(avatar) ? ".jpg" : ".png"));
+            try {
+                result = Files.readAllBytes(file);
+            } catch (NoSuchFileException e) {
+                result = generate(avatar, width(requestedWidth));
+                write(file, result);
+                log.debug("Rendition {} generated, {} bytes", key, result.length);
+            }
+            cache.put(key, result);
+        }
+
+        log.debug("Method get completed with result length: {}", result.length);
+        return result;
+    }
+
+    // удаляет рендишены файла, который больше не является аватаркой
+    public void evict(AvatarDto avatar) throws IOException {
+        log.debug("Method evict called with parameters: {}", avatar.getId());
+
+        if (avatar.getFilePath() == null) {
+            return;
+        }
+        for (int size : sizes) {
+            String key = sourceKey(avatar) + "_" + size;
+            cache.remove(key);
+            Files.deleteIfExists(folder.resolve(key + (isJpeg(avatar) ? ".jpg" : ".png")));
+        }
+    }
+
+    public CacheStatsDto getCacheStats() {
+        return cache.getStats();
+    }
+
+    private int width(int requestedWidth) {
+        for (int size : sizes) {
+            if (size >= requestedWidth) {
+                return size;
+            }
+        }
+        return sizes.get(sizes.size() - 1);
+    }
+
+    // у аватарок, загруженных до появления contentHash, ключ строится из id и размера файла
+    private static String sourceKey(AvatarDto avatar) {
+        return avatar.getContentHash() != null
+                ? avatar.getContentHash()
+                : "avatar-" + avatar.getId() + "-" + Long.toHexString(avatar.getFileSize());
+    }
+
+    private static boolean isJpeg(AvatarDto avatar) {
+        return "image/jpeg".equals(avatar.getMediaType());
+    }
+
+    private byte[] generate(AvatarDto avatar, int width) throws IOException {
+        BufferedImage image;
+        int sourceWidth;
+        try (ImageInputStream iis = ImageIO.createImageInputStream(Path.of(avatar.getFilePath()).toFile())) {
+            Iterator<ImageReader> readers = iis == null ? null : ImageIO.getImageReaders(iis);
+            if (readers == null || !readers.hasNext()) {
+                throw new IncorrectAvatarException("Avatar with id " + avatar.getId() + " is not a readable image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                sourceWidth = reader.getWidth(0);
+                // большие картинки читаются с прореживанием: пикселей остаётся вдвое больше нужного,
+                // этого хватает для сглаживания при уменьшении, а память и время декодирования падают
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = sourceWidth / (width * 2);
+                if (step > 1) {
+                    param.setSourceSubsampling(step, step, 0, 0);
+                }
+                image = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        // картинки не увеличиваются
+        int targetWidth = Math.min(width, sourceWidth);
+        if (isJpeg(avatar)) {
+            return writeJpeg(ImageScaler.scale(image, targetWidth, BufferedImage.TYPE_INT_RGB));
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(ImageScaler.scale(image, targetWidth, BufferedImage.TYPE_INT_ARGB), "png", baos);
+        return baos.toByteArray();
+    }
+
+    private byte[] writeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(jpegQuality);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(baos)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return baos.toByteArray();
+    }
+
+    // параллельные запросы одного рендишена пишут одинаковые байты, поэтому достаточно атомарной замены
+    private void write(Path file, byte[] data) throws IOException {
+        Files.createDirectories(folder);
+        Path temp = Files.createTempFile(folder, "rendition-", ".tmp");
+        try {
+            Files.write(temp, data);
+            try {
+                Files.move(temp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -3,29 +3,39 @@ package ru.hogwarts.school.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import ru.hogwarts.school.dto.AvatarDto;
+import ru.hogwarts.school.dto.AvatarPreviewStatsDto;
+import ru.hogwarts.school.dto.CacheStatsDto;
+import ru.hogwarts.school.dto.KeysetPageDto;
 import ru.hogwarts.school.dto.StudentDto;
 import ru.hogwarts.school.exception.AvatarNotFoundException;
+import ru.hogwarts.school.exception.IncorrectAvatarException;
 import ru.hogwarts.school.exception.IncorrectIdException;
+import ru.hogwarts.school.exception.IncorrectPageParameterException;
 import ru.hogwarts.school.exception.ParameterIsNullException;
 import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.PreviewStatus;
 import ru.hogwarts.school.repository.AvatarRepository;
 
-import javax.imageio.ImageIO;
-import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.*;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Objects;
+import java.util.List;
 import java.util.stream.Collectors;
-
-import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @Service
 public class AvatarService {
@@ -37,10 +47,23 @@ public class AvatarService {
 
     private final AvatarRepository repository;
     private final StudentService studentService;
-
-    public AvatarService(AvatarRepository repository, StudentService studentService) {
+    private final AvatarPreviewService previewService;
+    private final PreviewBlobService blobService;
+    private final AvatarFileStore fileStore;
+    private final AvatarRenditionService renditionService;
+
+    public AvatarService(AvatarRepository repository,
+                         StudentService studentService,
+                         AvatarPreviewService previewService,
+                         PreviewBlobService blobService,
+                         AvatarFileStore fileStore,
+                         AvatarRenditionService renditionService) {
         this.repository = repository;
         this.studentService = studentService;
+        this.previewService = previewService;
+        this.blobService = blobService;
+        this.fileStore = fileStore;
+        this.renditionService = renditionService;
     }
 
     public AvatarDto find(long id) {
@@ -65,33 +88,58 @@ public class AvatarService {
         return result;
     }
 
-    public void upload(Long studentId, MultipartFile avatar) throws IOException {
+    // файл сохраняется сразу, превью строится в фоне: аватарка возвращается со статусом PROCESSING
+    public AvatarDto upload(Long studentId, MultipartFile avatar) throws IOException {
         log.info("Method upload called with parameters: {}, {}", studentId, avatar);
 
         notNullParameterChecker(avatar);
         idParameterChecker(studentId);
 
         StudentDto studentDto = studentService.findById(studentId);
-        Path filePath = Path.of(folder, "student_" + studentDto.getId() + "." + getExtension(Objects.requireNonNull(avatar.getOriginalFilename())));
-        Files.createDirectories(filePath.getParent());
-        Files.deleteIfExists(filePath);
-
-        try (InputStream is = avatar.getInputStream();
-             OutputStream os = Files.newOutputStream(filePath, CREATE_NEW);
-             BufferedInputStream bis = new BufferedInputStream(is, 1024);
-             BufferedOutputStream bos = new BufferedOutputStream(os, 1024)) {
-            bis.transferTo(bos);
+        AvatarFileStore.StoredFile storedFile;
+        try (InputStream is = avatar.getInputStream()) {
+            storedFile = fileStore.store(is, Path.of(folder), "student_" + studentDto.getId());
         }
 
         AvatarDto avatarDto = findByStudentId(studentId);
-        avatarDto.setFilePath(filePath.toString());
-        avatarDto.setFileSize(avatar.getSize());
-        avatarDto.setMediaType(avatar.getContentType());
-        avatarDto.setData(generateAvatarPreview(filePath));
+        String oldFilePath = avatarDto.getFilePath();
+        String newFilePath = storedFile.getPath().toString();
+        // тот же файл загружен повторно: готовое превью к нему подходит
+        if (storedFile.getContentHash().equals(avatarDto.getContentHash())
+                && newFilePath.equals(oldFilePath)
+                && avatarDto.getPreviewStatus() == PreviewStatus.READY) {
+            log.info("Method upload completed with unchanged result: {}", avatarDto);
+            return avatarDto;
+        }
+
+        String oldPreviewHash = avatarDto.getPreviewHash();
+        AvatarDto oldFile = new AvatarDto();
+        oldFile.setId(avatarDto.getId());
+        oldFile.setFilePath(oldFilePath);
+        oldFile.setFileSize(avatarDto.getFileSize());
+        oldFile.setMediaType(avatarDto.getMediaType());
+        oldFile.setContentHash(avatarDto.getContentHash());
+        avatarDto.setFilePath(newFilePath);
+        avatarDto.setFileSize(storedFile.getSize());
+        avatarDto.setMediaType(storedFile.getMediaType());
+        avatarDto.setContentHash(storedFile.getContentHash());
+        avatarDto.setWidth(storedFile.getWidth());
+        avatarDto.setHeight(storedFile.getHeight());
+        avatarDto.setPreviewHash(null);
+        avatarDto.setPreviewStatus(PreviewStatus.PROCESSING);
         avatarDto.setStudentDto(studentDto);
 
-        repository.save(AvatarDto.toEntity(avatarDto));
-        log.info("Method upload completed");
+        AvatarDto result = AvatarDto.toDto(repository.save(AvatarDto.toEntity(avatarDto)));
+        blobService.release(oldPreviewHash);
+        renditionService.evict(oldFile);
+        // у файла другого формата другое расширение, старый файл больше не нужен
+        if (oldFilePath != null && !oldFilePath.equals(newFilePath)) {
+            Files.deleteIfExists(Path.of(oldFilePath));
+        }
+        previewService.submit(result.getId(), result.getContentHash());
+
+        log.info("Method upload completed with result: {}", result);
+        return result;
     }
 
     public Collection<AvatarDto> findAll(Integer pageNumber, Integer pageSize) {
@@ -109,35 +157,136 @@ public class AvatarService {
         return result;
     }
 
-    private String getExtension(String fileName) {
-        log.debug("Method getExtension called with parameters: {}", fileName);
+    public KeysetPageDto<AvatarDto> findPage(long afterId, int limit) {
+        log.info("Method findPage called with parameters: {}, {}", afterId, limit);
+
+        pageParametersChecker(afterId, limit);
+        List<AvatarDto> rows = repository
+                .findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(limit + 1))
+                .stream()
+                .map(AvatarDto::toDto)
+                .toList();
+        KeysetPageDto<AvatarDto> result = KeysetPageDto.of(rows, limit, AvatarDto::getId);
+
+        log.info("Method findPage completed with result: {}", result);
+        return result;
+    }
+
+    public List<AvatarDto> findAllById(Collection<Long> ids) {
+        log.info("Method findAllById called with parameters: {}", ids);
 
-        String result = fileName.substring(fileName.lastIndexOf(".") + 1);
+        notNullParameterChecker(ids);
+        if (ids.isEmpty() || ids.size() > KeysetPageDto.MAX_LIMIT) {
+            throw new IncorrectPageParameterException("Number of ids must be between 1 and " + KeysetPageDto.MAX_LIMIT);
+        }
+        ids.forEach(this::idParameterChecker);
+        List<AvatarDto> result = repository
+                .findByIdInOrderByIdAsc(ids)
+                .stream()
+                .map(AvatarDto::toDto)
+                .toList();
 
-        log.debug("Method getExtension completed with result: {}", result);
+        log.info("Method findAllById completed with result size: {}", result.size());
         return result;
     }
 
-    private byte[] generateAvatarPreview(Path filePath) throws IOException {
-        log.debug("Method generateAvatarPreview called with parameters: {}", filePath);
+    /**
+     * Пишет превью аватарок в ZIP-архив по одному: из базы читается одно превью, сразу уходит в поток
+     * и больше не держится в памяти. Аватарки без готового превью пропускаются. Картинки уже сжаты,
+     * поэтому записи сохраняются без сжатия (STORED).
+     */
+    public void writePreviews(List<AvatarDto> avatars, OutputStream outputStream) throws IOException {
+        log.info("Method writePreviews called with parameters size: {}", avatars.size());
+
+        int written = 0;
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(outputStream, 64 * 1024));
+        for (AvatarDto avatarDto : avatars) {
+            byte[] preview = avatarDto.getPreviewHash() == null ? null
+                    : blobService.get(avatarDto.getPreviewHash()).orElse(null);
+            if (preview == null) {
+                log.debug("Avatar {} has no preview, skipped", avatarDto.getId());
+                continue;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(preview);
+            ZipEntry entry = new ZipEntry("avatar_" + avatarDto.getId() + "." + previewExtension(avatarDto.getMediaType()));
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(preview.length);
+            entry.setCrc(crc.getValue());
+            zip.putNextEntry(entry);
+            zip.write(preview);
+            zip.closeEntry();
+            written++;
+        }
+        zip.finish();
+        zip.flush();
 
-        try (InputStream is = Files.newInputStream(filePath);
-             BufferedInputStream bis = new BufferedInputStream(is, 1024);
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            BufferedImage image = ImageIO.read(bis);
+        log.info("Method writePreviews completed with result: {} previews", written);
+    }
 
-            int height = image.getHeight() / (image.getWidth() / 100);
-            BufferedImage preview = new BufferedImage(100, height, image.getType());
-            Graphics2D graphics2D = preview.createGraphics();
-            graphics2D.drawImage(image, 0, 0, 100, height, null);
-            graphics2D.dispose();
+    public byte[] findPreview(String previewHash) {
+        log.info("Method findPreview called with parameters: {}", previewHash);
 
-            ImageIO.write(preview, getExtension(filePath.getFileName().toString()), baos);
-            byte[] result = baos.toByteArray();
+        notNullParameterChecker(previewHash);
+        byte[] result = blobService
+                .get(previewHash)
+                .orElseThrow(() -> new AvatarNotFoundException("Preview " + previewHash + " not found"));
 
-            log.debug("Method generateAvatarPreview completed with result length: {}", result.length);
-            return result;
+        log.info("Method findPreview completed with result length: {}", result.length);
+        return result;
+    }
+
+    // ключ рендишена (для ETag) известен без чтения файла
+    public String findRenditionKey(AvatarDto avatarDto, int width) {
+        log.info("Method findRenditionKey called with parameters: {}, {}", avatarDto.getId(), width);
+
+        widthParameterChecker(width);
+        String result = renditionService.key(avatarDto, width);
+
+        log.info("Method findRenditionKey completed with result: {}", result);
+        return result;
+    }
+
+    public String findRenditionMediaType(AvatarDto avatarDto) {
+        return renditionService.mediaType(avatarDto);
+    }
+
+    public byte[] findRendition(AvatarDto avatarDto, int width) throws IOException {
+        log.info("Method findRendition called with parameters: {}, {}", avatarDto.getId(), width);
+
+        widthParameterChecker(width);
+        byte[] result;
+        try {
+            result = renditionService.get(avatarDto, width);
+        } catch (NoSuchFileException e) {
+            throw new AvatarNotFoundException("File of avatar with id " + avatarDto.getId() + " not found");
         }
+
+        log.info("Method findRendition completed with result length: {}", result.length);
+        return result;
+    }
+
+    public CacheStatsDto getRenditionCacheStats() {
+        log.info("Method getRenditionCacheStats called");
+
+        CacheStatsDto result = renditionService.getCacheStats();
+
+        log.info("Method getRenditionCacheStats completed with result: {}", result);
+        return result;
+    }
+
+    public AvatarPreviewStatsDto getPreviewStats() {
+        log.info("Method getPreviewStats called");
+
+        AvatarPreviewStatsDto result = previewService.getStats();
+
+        log.info("Method getPreviewStats completed with result: {}", result);
+        return result;
+    }
+
+    private String previewExtension(String mediaType) {
+        String subtype = mediaType == null ? "bin" : MediaType.parseMediaType(mediaType).getSubtype();
+        return "jpeg".equals(subtype) ? "jpg" : subtype;
     }
 
     private void idParameterChecker(long id) {
@@ -151,4 +300,19 @@ public class AvatarService {
             throw new ParameterIsNullException("Parameter can't be null");
         }
     }
+
+    private void widthParameterChecker(int width) {
+        if (width < 1) {
+            throw new IncorrectAvatarException("Width can't be less than 1");
+        }
+    }
+
+    private void pageParametersChecker(long afterId, int limit) {
+        if (afterId < 0) {
+            throw new IncorrectPageParameterException("after_id can't be less than 0");
+        }
+        if (limit < 1 || limit > KeysetPageDto.MAX_LIMIT) {
+            throw new IncorrectPageParameterException("limit must be between 1 and " + KeysetPageDto.MAX_LIMIT);
+        }
+    }
 }
@@ -2,19 +2,26 @@ package ru.hogwarts.school.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import ru.hogwarts.school.cache.FacultyCache;
+import ru.hogwarts.school.cache.StudentStatsCache;
+import ru.hogwarts.school.dto.CacheStatsDto;
 import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.dto.KeysetPageDto;
 import ru.hogwarts.school.dto.StudentDto;
 import ru.hogwarts.school.exception.FacultyNotFoundException;
 import ru.hogwarts.school.exception.IncorrectIdException;
+import ru.hogwarts.school.exception.IncorrectPageParameterException;
 import ru.hogwarts.school.exception.ParameterIsNullException;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.FacultyStudentCount;
+import ru.hogwarts.school.repository.StudentRepository;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
-import java.util.Optional;
+import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,9 +30,18 @@ public class FacultyService {
     Logger log = LoggerFactory.getLogger(FacultyService.class);
 
     private final FacultyRepository repository;
-
-    public FacultyService(FacultyRepository repository) {
+    private final StudentRepository studentRepository;
+    private final FacultyCache cache;
+    private final StudentStatsCache studentStats;
+
+    public FacultyService(FacultyRepository repository,
+                          StudentRepository studentRepository,
+                          FacultyCache cache,
+                          StudentStatsCache studentStats) {
         this.repository = repository;
+        this.studentRepository = studentRepository;
+        this.cache = cache;
+        this.studentStats = studentStats;
     }
 
     public FacultyDto create(FacultyDto facultyDto) {
@@ -34,6 +50,7 @@ public class FacultyService {
         notNullParameterChecker(facultyDto);
         facultyDto.setId(null);
         FacultyDto result = FacultyDto.toDto(repository.save(FacultyDto.toEntity(facultyDto)));
+        cache.invalidate();
 
         log.info("Method create completed with result: {}", result);
         return result;
@@ -43,9 +60,8 @@ public class FacultyService {
         log.info("Method find called with parameters: {}", facultyId);
 
         idParameterChecker(facultyId);
-        FacultyDto result = repository
-                .findById(facultyId)
-                .map(FacultyDto::toDto)
+        FacultyDto result = cache
+                .getById(facultyId, id -> repository.findById(id).map(FacultyDto::toDto))
                 .orElseThrow(() -> new FacultyNotFoundException("No faculty with id \"" + facultyId + "\""));
 
         log.info("Method find completed with result: {}", result);
@@ -56,8 +72,13 @@ public class FacultyService {
         log.info("Method edit called with parameters: {}", facultyDto);
 
         notNullParameterChecker(facultyDto);
-        find(facultyDto.getId()); // чтобы если такого факультета не было, возвращалась ошибка, а не создавался новый
-        FacultyDto result = FacultyDto.toDto(repository.save(FacultyDto.toEntity(facultyDto)));
+        FacultyDto oldFacultyDto = find(facultyDto.getId()); // чтобы если такого факультета не было, возвращалась ошибка, а не создавался новый
+        Faculty faculty = FacultyDto.toEntity(facultyDto);
+        if (facultyDto.getVersion() == null) {
+            faculty.setVersion(oldFacultyDto.getVersion());
+        }
+        FacultyDto result = FacultyDto.toDto(repository.save(faculty));
+        cache.invalidate();
 
         log.info("Method edit completed with result: {}", result);
         return result;
@@ -67,8 +88,12 @@ public class FacultyService {
         log.info("Method delete called with parameters: {}", facultyId);
 
         idParameterChecker(facultyId);
-        find(facultyId); // чтобы если такого факультета не было, возвращалась ошибка, а не 200
-        repository.deleteById(facultyId);
+        // чтобы если такого факультета не было, возвращалась ошибка, а не 200
+        if (repository.deleteWithStudents(facultyId) == 0) {
+            throw new FacultyNotFoundException("No faculty with id \"" + facultyId + "\"");
+        }
+        cache.invalidate();
+        studentStats.invalidate(); // студенты факультета удалены вместе с ним
         log.info("Method delete completed");
     }
 
@@ -85,6 +110,21 @@ public class FacultyService {
         return result;
     }
 
+    public KeysetPageDto<FacultyDto> getPage(long afterId, int limit) {
+        log.info("Method getPage called with parameters: {}, {}", afterId, limit);
+
+        pageParametersChecker(afterId, limit);
+        List<FacultyDto> rows = repository
+                .findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(limit + 1))
+                .stream()
+                .map(FacultyDto::toDto)
+                .toList();
+        KeysetPageDto<FacultyDto> result = KeysetPageDto.of(rows, limit, FacultyDto::getId);
+
+        log.info("Method getPage completed with result: {}", result);
+        return result;
+    }
+
     public Collection<FacultyDto> getAllByColor(String facultyColor) {
         log.info("Method getAllByColor called with parameters: {}", facultyColor);
 
@@ -118,9 +158,8 @@ public class FacultyService {
         log.info("Method findByName called with parameters: {}", facultyName);
 
         notNullParameterChecker(facultyName);
-        FacultyDto result = repository
-                .findByNameIgnoreCase(facultyName)
-                .map(FacultyDto::toDto)
+        FacultyDto result = cache
+                .getByName(facultyName, name -> repository.findByNameIgnoreCase(name).map(FacultyDto::toDto))
                 .orElseThrow(() -> new FacultyNotFoundException("Факультет с именем \"" + facultyName + "\" не найден"));
 
         log.info("Method findByName completed with result: {}", result);
@@ -131,41 +170,78 @@ public class FacultyService {
         log.info("Method findStudentsByFacultyName called with parameters: {}", facultyName);
 
         notNullParameterChecker(facultyName);
-        FacultyDto facultyDto = findByName(facultyName);
-        Collection<StudentDto> result = facultyDto.getStudents();
+        List<StudentDto> result = studentRepository.findDtoByFacultyName(facultyName);
+        if (result.isEmpty()) {
+            // пустой факультет или факультета нет: второе - 404
+            findByName(facultyName);
+        }
 
         log.info("Method findStudentsByFacultyName completed with result size: {}", result.size());
         return result;
     }
 
+    public KeysetPageDto<StudentDto> findStudentsByFacultyNamePage(String facultyName, long afterId, int limit) {
+        log.info("Method findStudentsByFacultyNamePage called with parameters: {}, {}, {}", facultyName, afterId, limit);
+
+        notNullParameterChecker(facultyName);
+        pageParametersChecker(afterId, limit);
+        List<StudentDto> rows = studentRepository.findDtoByFacultyNameAfter(facultyName, afterId, Limit.of(limit + 1));
+        if (rows.isEmpty()) {
+            findByName(facultyName);
+        }
+        KeysetPageDto<StudentDto> result = KeysetPageDto.of(rows, limit, StudentDto::getId);
+
+        log.info("Method findStudentsByFacultyNamePage completed with result: {}", result);
+        return result;
+    }
+
     public String getLongestName() {
         log.info("Method getLongestName called");
 
         String result = repository
-                .findAll()
-                .stream()
-                .map(Faculty::getName)
-                .max(Comparator.comparingInt(String::length))
+                .findLongestName()
                 .orElseThrow(() -> new FacultyNotFoundException("Faculty not found"));
 
-
         log.info("Method getLongestName completed with result: {}", result);
         return result;
     }
 
+    // обычно отвечает из кэша за O(1); в базу идём только при промахе или если факультетов больше размера кэша
     public FacultyDto findRandom() {
         log.info("Method findRandom called");
 
-        Optional<Faculty> faculty = repository.findRandom();
-        if (faculty.isEmpty()) {
-            throw new FacultyNotFoundException("No faculty found");
-        }
-        FacultyDto result = FacultyDto.toDto(faculty.get());
+        FacultyDto result = cache
+                .getRandom(
+                        limit -> repository
+                                .findByIdGreaterThanOrderByIdAsc(0, Limit.of(limit))
+                                .stream()
+                                .map(FacultyDto::toDto)
+                                .toList(),
+                        () -> repository
+                                .countStudentsByFaculty()
+                                .stream()
+                                .collect(Collectors.toMap(FacultyStudentCount::getFacultyId, FacultyStudentCount::getStudentCount)),
+                        () -> repository.findRandom().map(FacultyDto::toDto))
+                .orElseThrow(() -> new FacultyNotFoundException("No faculty found"));
 
         log.info("Method findRandom completed with result: {}", result);
         return result;
     }
 
+    // студенты созданы, переведены или удалены не через findRandom
+    public void studentsChanged() {
+        cache.invalidateStudentCounts();
+    }
+
+    public CacheStatsDto getCacheStats() {
+        log.info("Method getCacheStats called");
+
+        CacheStatsDto result = cache.getStats();
+
+        log.info("Method getCacheStats completed with result: {}", result);
+        return result;
+    }
+
     private void notNullParameterChecker(Object o) {
         if (o == null) {
             throw new ParameterIsNullException("Parameter can't be null");
@@ -177,4 +253,13 @@ public class FacultyService {
             throw new IncorrectIdException("ID can't be less than 1");
         }
     }
+
+    private void pageParametersChecker(long afterId, int limit) {
+        if (afterId < 0) {
+            throw new IncorrectPageParameterException("after_id can't be less than 0");
+        }
+        if (limit < 1 || limit > KeysetPageDto.MAX_LIMIT) {
+            throw new IncorrectPageParameterException("limit must be between 1 and " + KeysetPageDto.MAX_LIMIT);
+        }
+    }
 }
@@ -0,0 +1,31 @@
+package ru.hogwarts.school.service;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+// общее уменьшение картинок для превью и рендишенов
+final class ImageScaler {
+
+    private ImageScaler() {
+    }
+
+    // высота считается по пропорциям и не бывает меньше 1 пикселя, даже у узких и низких картинок
+    static BufferedImage scale(BufferedImage image, int width, int type) {
+        int height = Math.max(1, (int) ((long) image.getHeight() * width / image.getWidth()));
+        BufferedImage result = new BufferedImage(width, height, type);
+        Graphics2D graphics2D = result.createGraphics();
+        graphics2D.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics2D.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        graphics2D.drawImage(image, 0, 0, width, height, null);
+        graphics2D.dispose();
+        return result;
+    }
+
+    // тип исходной картинки; TYPE_CUSTOM (например, PNG с палитрой) заменяется на RGB или ARGB
+    static int typeOf(BufferedImage image) {
+        if (image.getType() != BufferedImage.TYPE_CUSTOM) {
+            return image.getType();
+        }
+        return image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+    }
+}
@@ -0,0 +1,74 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.model.PreviewBlob;
+import ru.hogwarts.school.repository.PreviewBlobRepository;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Хранилище превью по хэшу содержимого (SHA-256). Аватарка хранит только хэш, поэтому списки
+ * и поиск аватарок не читают байты превью, а одинаковые превью лежат в базе один раз.
+ * put держит строку превью под FOR SHARE до конца транзакции, в которой аватарка получает preview_hash,
+ * release перед удалением берёт FOR UPDATE: удаление не проходит между сохранением превью и ссылкой на него.
+ */
+@Service
+public class PreviewBlobService {
+
+    Logger log = LoggerFactory.getLogger(PreviewBlobService.class);
+
+    private final PreviewBlobRepository repository;
+
+    public PreviewBlobService(PreviewBlobRepository repository) {
+        this.repository = repository;
+    }
+
+    // возвращает хэш, по которому превью потом читается. Ссылку на хэш нужно записать в той же транзакции
+    @Transactional(propagation = Propagation.MANDATORY)
+    public String put(byte[] data) {
+        log.debug("Method put called with parameters length: {}", data.length);
+
+        String hash = sha256(data);
+        // если такое превью уже есть, байты в базу не отправляются. Своя незакоммиченная строка
+        // другим транзакциям не видна, а 0 значит, что её успел вставить кто-то другой: тогда она блокируется
+        while (repository.lockShared(hash).isEmpty() && repository.insertIfAbsent(hash, data) == 0) {
+            log.debug("Preview blob {} was inserted concurrently", hash);
+        }
+
+        log.debug("Method put completed with result: {}", hash);
+        return hash;
+    }
+
+    public Optional<byte[]> get(String hash) {
+        log.debug("Method get called with parameters: {}", hash);
+
+        return repository.findById(hash).map(PreviewBlob::getData);
+    }
+
+    // вызывается после того, как аватарка перестала ссылаться на превью. DELETE - отдельный запрос после
+    // блокировки, поэтому видит preview_hash, закоммиченный транзакцией, которая держала FOR SHARE
+    @Transactional
+    public void release(String hash) {
+        log.debug("Method release called with parameters: {}", hash);
+
+        if (hash != null && repository.lockForDelete(hash).isPresent() && repository.deleteIfUnreferenced(hash) > 0) {
+            log.debug("Preview blob {} deleted", hash);
+        }
+    }
+
+    static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 обязан быть в любой JVM
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package ru.hogwarts.school.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.hogwarts.school.exception.ComputationTimeoutException;
+import ru.hogwarts.school.exception.ParameterIsNullException;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Сумма целых чисел диапазона [from, to]. При int-границах сумма по модулю меньше 2^62 и помещается в long.
+ * FORMULA считает её за O(1), FORK_JOIN складывает числа на своём ForkJoinPool - общий пул parallel-стримов
+ * не занимается - и прерывается, если не уложилась в timeout.
+ */
+@Service
+public class RangeSumService {
+
+    Logger log = LoggerFactory.getLogger(RangeSumService.class);
+
+    // столько чисел одна задача складывает сама, не деля диапазон дальше
+    static final long THRESHOLD = 1 << 16;
+
+    private final ForkJoinPool pool;
+    private final Duration timeout;
+
+    public RangeSumService(@Value("${range-sum.parallelism}") int parallelism,
+                           @Value("${range-sum.timeout}") Duration timeout) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.timeout = timeout;
+    }
+
+    public long sum(int from, int to, SumStrategy strategy) {
+        log.info("Method sum called with parameters: {}, {}, {}", from, to, strategy);
+
+        if (strategy == null) {
+            throw new ParameterIsNullException("Parameter can't be null");
+        }
+        long start = System.nanoTime();
+        long result;
+        if (from > to) {
+            result = 0;
+        } else if (strategy == SumStrategy.FORMULA) {
+            result = formula(from, to);
+        } else {
+            result = forkJoin(from, to);
+        }
+
+        log.info("Method sum completed with result: {} in {} ms", result, (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    static long formula(long from, long to) {
+        long count = to - from + 1;
+        long ends = from + to;
+        // одно из двух чисел чётное: делится оно, и произведение не выходит за long
+        return count % 2 == 0 ? count / 2 * ends : count * (ends / 2);
+    }
+
+    private long forkJoin(int from, int to) {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        ForkJoinTask<Long> task = pool.submit(new RangeSumTask(from, to, cancelled));
+        try {
+            return task.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            cancelled.set(true);
+            task.cancel(true);
+            throw new ComputationTimeoutException("Sum of [" + from + ", " + to + "] did not finish in " + timeout);
+        } catch (InterruptedException e) {
+            cancelled.set(true);
+            Thread.currentThread().interrupt();
+            throw new ComputationTimeoutException("Sum of [" + from + ", " + to + "] was interrupted");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // cancel у ForkJoinTask не останавливает уже запущенные подзадачи, поэтому они сами проверяют общий флаг
+    static final class RangeSumTask extends RecursiveTask<Long> {
+
+        private final long from;
+        private final long to;
+        private final AtomicBoolean cancelled;
+
+        RangeSumTask(long from, long to, AtomicBoolean cancelled) {
+            this.from = from;
+            this.to = to;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from < THRESHOLD) {
+                if (cancelled.get()) {
+                    throw new CancellationException();
+                }
+                long sum = 0;
+                for (long i = from; i <= to; i++) {
+                    sum += i;
+                }
+                return sum;
+            }
+            long middle = from + (to - from) / 2;
+            RangeSumTask left = new RangeSumTask(from, middle, cancelled);
+            left.fork();
+            long right = new RangeSumTask(middle + 1, to, cancelled).compute();
+            return right + left.join();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package ru.hogwarts.school.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+import ru.hogwarts.school.dto.RosterStatsDto;
+import ru.hogwarts.school.exception.RosterBusyException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Параллельная обработка списка студентов на своём пуле потоков фиксированного размера с ограниченной очередью.
+ * Список делится на части, каждая часть - отдельная задача. Вызывающий поток ждёт все части не дольше timeout
+ * и получает результат; при ошибке, таймауте или переполненной очереди незаконченные части отменяются.
+ */
+@Component
+public class RosterProcessor {
+
+    Logger log = LoggerFactory.getLogger(RosterProcessor.class);
+
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    public RosterProcessor(@Value("${student.roster.threads}") int threads,
+                           @Value("${student.roster.queue-capacity}") int queueCapacity,
+                           @Value("${student.roster.timeout}") Duration timeout,
+                           @Value("${spring.threads.virtual.enabled}") boolean virtualThreads) {
+        this.timeout = timeout;
+        // с виртуальными потоками threads по-прежнему ограничивает число одновременных задач и соединений с базой
+        ThreadFactory threadFactory;
+        if (virtualThreads) {
+            threadFactory = new VirtualThreadTaskExecutor("student-roster-").getVirtualThreadFactory();
+        } else {
+            AtomicInteger threadNumber = new AtomicInteger();
+            threadFactory = task -> new Thread(task, "student-roster-" + threadNumber.incrementAndGet());
+        }
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Применяет task к частям items размером chunkSize. ordered = true - результаты частей идут в порядке items,
+     * false - в порядке завершения частей. Исключение из task пробрасывается вызывающему.
+     */
+    public <T, R> List<R> process(List<T> items, int chunkSize, boolean ordered, Function<List<T>, List<R>> task) {
+        log.debug("Method process called with parameters: {}, {}, {}", items.size(), chunkSize, ordered);
+
+        CompletionService<List<R>> completion = new ExecutorCompletionService<>(executor);
+        List<Future<List<R>>> futures = new ArrayList<>();
+        try {
+            for (int from = 0; from < items.size(); from += chunkSize) {
+                List<T> chunk = items.subList(from, Math.min(from + chunkSize, items.size()));
+                futures.add(completion.submit(() -> {
+                    List<R> chunkResult = task.apply(chunk);
+                    completed.incrementAndGet();
+                    return chunkResult;
+                }));
+            }
+
+            long deadline = System.nanoTime() + timeout.toNanos();
+            List<R> result = new ArrayList<>(items.size());
+            if (ordered) {
+                for (Future<List<R>> future : futures) {
+                    result.addAll(future.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+                }
+            } else {
+                for (int i = 0; i < futures.size(); i++) {
+                    Future<List<R>> future = completion.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (future == null) {
+                        throw new TimeoutException();
+                    }
+                    result.addAll(future.get());
+                }
+            }
+
+            log.debug("Method process completed with result size: {}", result.size());
+            return result;
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new RosterBusyException("Roster executor is busy, try again later");
+        } catch (TimeoutException e) {
+            timedOut.incrementAndGet();
+            throw new RosterBusyException("Roster processing did not finish in " + timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RosterBusyException("Roster processing was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // у завершённых частей cancel ничего не делает
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    public RosterStatsDto getStats() {
+        return new RosterStatsDto(
+                executor.getQueue().size(),
+                executor.getActiveCount(),
+                completed.get(),
+                rejected.get(),
+                timedOut.get());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package ru.hogwarts.school.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.hogwarts.school.cache.StudentStatsCache;
+import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.dto.StudentImportDto;
+import ru.hogwarts.school.dto.StudentImportResultDto;
+import ru.hogwarts.school.exception.ParameterIsNullException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+@Service
+public class StudentImportService {
+
+    Logger log = LoggerFactory.getLogger(StudentImportService.class);
+
+    // id берутся из того же сиквенса, что и у Hibernate, по одному nextval на строку: значение v лежит
+    // внутри блока, который этот nextval занимает при любом оптимизаторе ([v, v + 50) у pooled-lo,
+    // (v - 50, v] у pooled), поэтому с id Hibernate не пересекается. Остальные 49 id блока пропадают
+    private static final String IDS_SQL = "SELECT nextval('student_seq') FROM generate_series(1, ?)";
+    private static final String INSERT_SQL =
+            "INSERT INTO student (id, name, age, faculty_id, version) VALUES (?, ?, ?, ?, 0)";
+    private static final String CSV_HEADER = "name,age,facultyname";
+
+    @Value("${student.import.batch-size}")
+    private int batchSize;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final FacultyService facultyService;
+    private final StudentStatsCache stats;
+
+    public StudentImportService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                FacultyService facultyService,
+                                StudentStatsCache stats) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.facultyService = facultyService;
+        this.stats = stats;
+    }
+
+    public StudentImportResultDto importStudents(List<StudentImportDto> students) {
+        log.info("Method importStudents called with parameters size: {}", students == null ? null : students.size());
+
+        notNullParameterChecker(students);
+        ImportBatch batch = new ImportBatch(loadFacultyIds());
+        long row = 0;
+        for (StudentImportDto student : students) {
+            batch.add(++row, student);
+        }
+        StudentImportResultDto result = batch.finish();
+
+        log.info("Method importStudents completed with result: {}", result);
+        return result;
+    }
+
+    // CSV по RFC 4180: name,age,facultyName; заголовок необязателен. Поле в кавычках может содержать запятые,
+    // переводы строк и кавычки, удвоенные (""). Файл читается по записям, в памяти держится не больше одной пачки
+    public StudentImportResultDto importCsv(InputStream csv) throws IOException {
+        log.info("Method importCsv called");
+
+        notNullParameterChecker(csv);
+        ImportBatch batch = new ImportBatch(loadFacultyIds());
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8))) {
+            long row = 0;
+            List<String> fields;
+            while (true) {
+                try {
+                    fields = readCsvRecord(reader);
+                } catch (IllegalArgumentException e) {
+                    batch.result.addError(row + 1, e.getMessage());
+                    break;
+                }
+                if (fields == null) {
+                    break;
+                }
+                if (row == 0 && isCsvHeader(fields)) {
+                    continue;
+                }
+                row++;
+                if (fields.size() != 3) {
+                    batch.result.addError(row, "Expected 3 fields: name,age,facultyName");
+                    continue;
+                }
+                Integer age;
+                try {
+                    age = Integer.valueOf(fields.get(1));
+                } catch (NumberFormatException e) {
+                    batch.result.addError(row, "Age must be a number");
+                    continue;
+                }
+                batch.add(row, new StudentImportDto(fields.get(0), age, fields.get(2)));
+            }
+        }
+        StudentImportResultDto result = batch.finish();
+
+        log.info("Method importCsv completed with result: {}", result);
+        return result;
+    }
+
+    // факультетов мало, поэтому имена разрешаются один раз на весь импорт, а не запросом на каждую строку
+    private Map<String, Long> loadFacultyIds() {
+        Map<String, Long> facultyIds = new HashMap<>();
+        for (FacultyDto faculty : facultyService.getAll()) {
+            // факультет без имени строкой CSV не выбрать
+            if (faculty.getName() != null) {
+                facultyIds.put(faculty.getName().toLowerCase(), faculty.getId());
+            }
+        }
+        return facultyIds;
+    }
+
+    private boolean isCsvHeader(List<String> fields) {
+        return String.join(",", fields).replace(" ", "").equalsIgnoreCase(CSV_HEADER);
+    }
+
+    // поля следующей непустой записи или null в конце файла. Пробелы вокруг поля отбрасываются,
+    // внутри кавычек сохраняются. Незакрытая кавычка - IllegalArgumentException
+    private static List<String> readCsvRecord(BufferedReader reader) throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean inQuotes = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!inQuotes) {
+                    break;
+                }
+                // перевод строки внутри кавычек - часть поля
+                line = reader.readLine();
+                if (line == null) {
+                    throw new IllegalArgumentException("Unterminated quoted field");
+                }
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (inQuotes) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i < line.length() && line.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    inQuotes = false;
+                }
+            } else if (c == ',') {
+                fields.add(quoted ? field.toString() : field.toString().trim());
+                field.setLength(0);
+                quoted = false;
+            } else if (c == '"' && !quoted && field.toString().isBlank()) {
+                field.setLength(0);
+                quoted = true;
+                inQuotes = true;
+            } else if (!quoted || !Character.isWhitespace(c)) {
+                field.append(c);
+            }
+        }
+        fields.add(quoted ? field.toString() : field.toString().trim());
+        return fields;
+    }
+
+    private void notNullParameterChecker(Object o) {
+        if (o == null) {
+            throw new ParameterIsNullException("Parameter can't be null");
+        }
+    }
+
+    private record ValidRow(long row, String name, int age, long facultyId) {
+    }
+
+    private class ImportBatch {
+
+        private final Map<String, Long> facultyIds;
+        private final StudentImportResultDto result = new StudentImportResultDto();
+        private final List<ValidRow> rows = new ArrayList<>(batchSize);
+
+        private ImportBatch(Map<String, Long> facultyIds) {
+            this.facultyIds = facultyIds;
+        }
+
+        private void add(long row, StudentImportDto student) {
+            if (student == null) {
+                result.addError(row, "Row can't be null");
+                return;
+            }
+            if (student.getName() == null || student.getName().isBlank()) {
+                result.addError(row, "Name can't be empty");
+                return;
+            }
+            if (student.getAge() == null || student.getAge() < 1) {
+                result.addError(row, "Age can't be less than 1");
+                return;
+            }
+            if (student.getFacultyName() == null) {
+                result.addError(row, "Faculty name can't be null");
+                return;
+            }
+            Long facultyId = facultyIds.get(student.getFacultyName().toLowerCase());
+            if (facultyId == null) {
+                result.addError(row, "Faculty with name \"" + student.getFacultyName() + "\" not found");
+                return;
+            }
+            rows.add(new ValidRow(row, student.getName(), student.getAge(), facultyId));
+            if (rows.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private StudentImportResultDto finish() {
+            flush();
+            if (result.getImported() > 0) {
+                facultyService.studentsChanged();
+            }
+            return result;
+        }
+
+        // пачка вставляется одним JDBC batch в своей транзакции. Если она упала, откатывается
+        // только она, и строки повторяются по одной, чтобы найти виноватые. Выданные id сиквенс
+        // назад не забирает, поэтому при повторе строки вставляются с теми же id
+        private void flush() {
+            if (rows.isEmpty()) {
+                return;
+            }
+            long[] ids = allocateIds(rows.size());
+            try {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(
+                        INSERT_SQL,
+                        IntStream.range(0, rows.size()).boxed().toList(),
+                        rows.size(),
+                        (ps, i) -> {
+                            ValidRow row = rows.get(i);
+                            ps.setLong(1, ids[i]);
+                            ps.setString(2, row.name());
+                            ps.setInt(3, row.age());
+                            ps.setLong(4, row.facultyId());
+                        }));
+                result.addImported(rows.size());
+                rows.forEach(row -> stats.onCreated(row.age(), row.facultyId()));
+            } catch (DataAccessException e) {
+                log.debug("Batch insert failed, retrying {} rows one by one: {}", rows.size(), e.getMessage());
+                for (int i = 0; i < rows.size(); i++) {
+                    ValidRow row = rows.get(i);
+                    try {
+                        jdbcTemplate.update(INSERT_SQL, ids[i], row.name(), row.age(), row.facultyId());
+                        result.addImported(1);
+                        stats.onCreated(row.age(), row.facultyId());
+                    } catch (DataAccessException rowException) {
+                        result.addError(row.row(), rowException.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+            rows.clear();
+        }
+
+        private long[] allocateIds(int count) {
+            return jdbcTemplate.queryForList(IDS_SQL, Long.class, count).stream()
+                    .mapToLong(Long::longValue)
+                    .toArray();
+        }
+    }
+}
@@ -2,33 +2,65 @@ package ru.hogwarts.school.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.hogwarts.school.cache.StudentStatsCache;
+import ru.hogwarts.school.dto.BulkResultDto;
 import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.dto.KeysetPageDto;
+import ru.hogwarts.school.dto.RosterStatsDto;
+import ru.hogwarts.school.dto.StudentAnalyticsDto;
 import ru.hogwarts.school.dto.StudentDto;
+import ru.hogwarts.school.dto.StudentStatsDto;
 import ru.hogwarts.school.exception.IncorrectAgeException;
 import ru.hogwarts.school.exception.IncorrectIdException;
+import ru.hogwarts.school.exception.IncorrectPageParameterException;
 import ru.hogwarts.school.exception.ParameterIsNullException;
+import ru.hogwarts.school.exception.StaleVersionException;
 import ru.hogwarts.school.exception.StudentNotFoundException;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.StudentAgeGroup;
+import ru.hogwarts.school.repository.StudentDeletion;
 import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.repository.StudentUpdate;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class StudentService {
 
     Logger log = LoggerFactory.getLogger(StudentService.class);
 
+    private static final int[] AGE_PERCENTILES = {25, 50, 75, 90, 99};
+
     private final StudentRepository repository;
     private final FacultyService facultyService;
+    private final StudentStatsCache stats;
+    private final RosterProcessor roster;
+    // ReentrantLock, а не synchronized: печать - это I/O, и виртуальный поток не должен занимать поток-носитель
+    private final Lock printLock = new ReentrantLock();
 
-    public StudentService(StudentRepository repository, FacultyService facultyService) {
+    public StudentService(StudentRepository repository, FacultyService facultyService,
+                          StudentStatsCache stats, RosterProcessor roster) {
         this.repository = repository;
         this.facultyService = facultyService;
+        this.stats = stats;
+        this.roster = roster;
     }
 
     public StudentDto create(StudentDto studentDto, String facultyName) {
@@ -43,6 +75,8 @@ public class StudentService {
         student.setFaculty(faculty);
 
         StudentDto result = StudentDto.toDto(repository.save(student));
+        stats.onCreated(result.getAge(), facultyDto.getId());
+        facultyService.studentsChanged();
 
         log.info("Method create completed with result: {}", result);
         return result;
@@ -58,6 +92,7 @@ public class StudentService {
         student.setFaculty(faculty);
 
         StudentDto result = StudentDto.toDto(repository.save(student));
+        stats.onCreated(result.getAge(), facultyDto.getId());
 
         log.info("Method createWithRandomFaculty completed with result: {}", result);
         return result;
@@ -76,29 +111,124 @@ public class StudentService {
         return result;
     }
 
+    /**
+     * Правка имени и возраста одним UPDATE. Если в studentDto есть версия, строка обновляется только
+     * при совпадении версии, иначе StaleVersionException; без версии побеждает последняя запись.
+     * Факультет студента не меняется. В результате - новая версия.
+     */
     public StudentDto edit(StudentDto studentDto) {
         log.info("Method edit called with parameters: {}", studentDto);
 
         notNullParameterChecker(studentDto);
-        findById(studentDto.getId()); // чтобы если с таким id нет, выдавало ошибку, а не создавало нового
-        Student student = StudentDto.toEntity(studentDto);
-        student.setFaculty(FacultyDto.toEntity(findFacultyByStudentId(studentDto.getId())));
-        repository.save(student);
+        notNullParameterChecker(studentDto.getId());
+        long studentId = studentDto.getId();
+        idParameterChecker(studentId);
+        StudentUpdate update = repository
+                .updateVersioned(studentId, studentDto.getName(), studentDto.getAge(), studentDto.getVersion())
+                .orElse(null);
+        if (update == null) {
+            // второй запрос только на неудачном пути: отличить 404 от устаревшей версии
+            if (!repository.existsById(studentId)) {
+                throw new StudentNotFoundException("Student with id " + studentId + " not found");
+            }
+            throw new StaleVersionException("Student with id " + studentId + " was modified, version " + studentDto.getVersion() + " is stale");
+        }
+        stats.onAgeChanged(update.getOldAge(), studentDto.getAge());
+        StudentDto result = new StudentDto(studentId, studentDto.getName(), studentDto.getAge(), update.getVersion());
 
-        log.info("Method edit completed with result: {}", studentDto);
-        return studentDto;
+        log.info("Method edit completed with result: {}", result);
+        return result;
     }
 
     public void delete(long studentId) {
         log.info("Method delete called with parameters: {}", studentId);
 
         idParameterChecker(studentId);
-        findById(studentId); // чтобы если с таким id нет, выдавало ошибку, а не возвращало 200
-        repository.deleteById(studentId);
+        // чтобы если с таким id нет, выдавало ошибку, а не возвращало 200
+        StudentDeletion deleted = repository
+                .deleteReturning(studentId)
+                .orElseThrow(() -> new StudentNotFoundException("Student with id " + studentId + " not found"));
+        stats.onDeleted(deleted.getAge(), deleted.getFacultyId());
+        facultyService.studentsChanged();
 
         log.info("Method delete completed");
     }
 
+    // все студенты факультета fromFacultyId переходят на toFacultyId одним UPDATE
+    public BulkResultDto moveToFaculty(long fromFacultyId, long toFacultyId) {
+        log.info("Method moveToFaculty called with parameters: {}, {}", fromFacultyId, toFacultyId);
+
+        idParameterChecker(fromFacultyId);
+        idParameterChecker(toFacultyId);
+        // FacultyNotFoundException, если целевого факультета нет
+        facultyService.find(toFacultyId);
+        int moved = fromFacultyId == toFacultyId ? 0 : repository.moveToFaculty(fromFacultyId, toFacultyId);
+        stats.onMoved(fromFacultyId, toFacultyId, moved);
+        if (moved > 0) {
+            facultyService.studentsChanged();
+        }
+        BulkResultDto result = new BulkResultDto(moved);
+
+        log.info("Method moveToFaculty completed with result: {}", result);
+        return result;
+    }
+
+    // перевод на следующий год: возраст всех студентов (или студентов одного факультета) растёт на years
+    public BulkResultDto incrementAges(int years, Long facultyId) {
+        log.info("Method incrementAges called with parameters: {}, {}", years, facultyId);
+
+        ageParameterChecker(years);
+        if (facultyId != null) {
+            idParameterChecker(facultyId);
+        }
+        int updated = repository.incrementAges(years, facultyId);
+        stats.onAgesIncremented(updated, years);
+        BulkResultDto result = new BulkResultDto(updated);
+
+        log.info("Method incrementAges completed with result: {}", result);
+        return result;
+    }
+
+    // id, которых нет, пропускаются: в ответе только число действительно удалённых
+    public BulkResultDto deleteAllById(Collection<Long> studentIds) {
+        log.info("Method deleteAllById called with parameters: {}", studentIds);
+
+        notNullParameterChecker(studentIds);
+        if (studentIds.isEmpty() || studentIds.size() > KeysetPageDto.MAX_LIMIT) {
+            throw new IncorrectIdException("Number of ids must be between 1 and " + KeysetPageDto.MAX_LIMIT);
+        }
+        studentIds.forEach(id -> {
+            notNullParameterChecker(id);
+            idParameterChecker(id);
+        });
+        BulkResultDto result = new BulkResultDto(deleted(repository.deleteAllByIdIn(studentIds)));
+
+        log.info("Method deleteAllById completed with result: {}", result);
+        return result;
+    }
+
+    // без единого условия запрос удалил бы всех студентов, поэтому хотя бы одно обязательно
+    public BulkResultDto deleteByFilter(Long facultyId, Integer minAge, Integer maxAge) {
+        log.info("Method deleteByFilter called with parameters: {}, {}, {}", facultyId, minAge, maxAge);
+
+        if (facultyId == null && minAge == null && maxAge == null) {
+            throw new ParameterIsNullException("At least one of faculty_id, min_age, max_age is required");
+        }
+        if (facultyId != null) {
+            idParameterChecker(facultyId);
+        }
+        if (minAge != null) {
+            ageParameterChecker(minAge);
+        }
+        if (maxAge != null) {
+            ageParameterChecker(maxAge);
+        }
+        BulkResultDto result = new BulkResultDto(deleted(repository.deleteByFilter(facultyId, minAge, maxAge)));
+
+        log.info("Method deleteByFilter completed with result: {}", result);
+        return result;
+    }
+
     public Collection<StudentDto> getAll() {
         log.info("Method getAll called");
 
@@ -112,6 +242,38 @@ public class StudentService {
         return result;
     }
 
+    public KeysetPageDto<StudentDto> getPage(long afterId, int limit) {
+        log.info("Method getPage called with parameters: {}, {}", afterId, limit);
+
+        pageParametersChecker(afterId, limit);
+        List<StudentDto> rows = repository
+                .findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(limit + 1))
+                .stream()
+                .map(StudentDto::toDto)
+                .toList();
+        KeysetPageDto<StudentDto> result = KeysetPageDto.of(rows, limit, StudentDto::getId);
+
+        log.info("Method getPage completed with result: {}", result);
+        return result;
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<StudentDto> consumer) {
+        log.info("Method streamAll called");
+
+        notNullParameterChecker(consumer);
+        long count = 0;
+        try (Stream<StudentDto> students = repository.streamAll()) {
+            Iterator<StudentDto> iterator = students.iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                count++;
+            }
+        }
+
+        log.info("Method streamAll completed with result size: {}", count);
+    }
+
     public Collection<StudentDto> getAllByAge(int studentAge) {
         log.info("Method getAllByAge called with parameters: {}", studentAge);
 
@@ -141,6 +303,23 @@ public class StudentService {
         return result;
     }
 
+    public KeysetPageDto<StudentDto> findByAgeBetweenPage(int min, int max, long afterId, int limit) {
+        log.info("Method findByAgeBetweenPage called with parameters: {}, {}, {}, {}", min, max, afterId, limit);
+
+        ageParameterChecker(min);
+        ageParameterChecker(max);
+        pageParametersChecker(afterId, limit);
+        List<StudentDto> rows = repository
+                .findByAgeBetweenAndIdGreaterThanOrderByIdAsc(min, max, afterId, Limit.of(limit + 1))
+                .stream()
+                .map(StudentDto::toDto)
+                .toList();
+        KeysetPageDto<StudentDto> result = KeysetPageDto.of(rows, limit, StudentDto::getId);
+
+        log.info("Method findByAgeBetweenPage completed with result: {}", result);
+        return result;
+    }
+
     public FacultyDto findFacultyByStudentId(long studentId) {
         log.info("Method findFacultyByStudentId called with parameters: {}", studentId);
 
@@ -156,7 +335,7 @@ public class StudentService {
     public long count() {
         log.info("Method count called");
 
-        long result = repository.count();
+        long result = stats.getStats().getCount();
 
         log.info("Method count completed with result: {}", result);
         return result;
@@ -165,12 +344,80 @@ public class StudentService {
     public int avgAge() {
         log.info("Method avgAge called");
 
-        int result = repository.avgAge();
+        // студенты без возраста в среднее не входят, как и в AVG(age)
+        StudentStatsDto studentStats = stats.getStats();
+        if (studentStats.getAgeCount() == 0) {
+            throw new StudentNotFoundException("There are not students");
+        }
+        int result = (int) (studentStats.getAgeSum() / studentStats.getAgeCount());
 
         log.info("Method avgAge completed with result: {}", result);
         return result;
     }
 
+    public StudentStatsDto getStats() {
+        log.info("Method getStats called");
+
+        StudentStatsDto result = stats.getStats();
+
+        log.info("Method getStats completed with result: {}", result);
+        return result;
+    }
+
+    // всё считается за один проход по группам (возраст, факультет): строки студентов из базы не передаются
+    public StudentAnalyticsDto getAnalytics() {
+        log.info("Method getAnalytics called");
+
+        long count = 0;
+        long agedCount = 0;
+        long ageSum = 0;
+        long nameLengthSum = 0;
+        TreeMap<Integer, Long> ageHistogram = new TreeMap<>();
+        Map<Long, Long> studentsByFaculty = new HashMap<>();
+        StudentAnalyticsDto result = new StudentAnalyticsDto();
+        for (StudentAgeGroup group : repository.groupByAgeAndFaculty()) {
+            long groupCount = group.getStudentCount();
+            count += groupCount;
+            nameLengthSum += group.getNameLengthSum();
+            if (group.getAge() != null) {
+                agedCount += groupCount;
+                ageSum += group.getAge() * groupCount;
+                ageHistogram.merge(group.getAge(), groupCount, Long::sum);
+            }
+            if (group.getFacultyId() != null) {
+                studentsByFaculty.merge(group.getFacultyId(), groupCount, Long::sum);
+            }
+            if (group.getMinNameLength() != null
+                    && (result.getMinNameLength() == null || group.getMinNameLength() < result.getMinNameLength())) {
+                result.setMinNameLength(group.getMinNameLength());
+            }
+            if (group.getMaxNameLength() != null
+                    && (result.getMaxNameLength() == null || group.getMaxNameLength() > result.getMaxNameLength())) {
+                result.setMaxNameLength(group.getMaxNameLength());
+            }
+        }
+
+        result.setCount(count);
+        result.setAgeHistogram(ageHistogram);
+        result.setStudentsByFaculty(studentsByFaculty);
+        if (count > 0) {
+            result.setAverageNameLength((double) nameLengthSum / count);
+        }
+        if (agedCount > 0) {
+            result.setMinAge(ageHistogram.firstKey());
+            result.setMaxAge(ageHistogram.lastKey());
+            result.setAverageAge((double) ageSum / agedCount);
+            Map<String, Integer> agePercentiles = new LinkedHashMap<>();
+            for (int percent : AGE_PERCENTILES) {
+                agePercentiles.put("p" + percent, percentile(ageHistogram, agedCount, percent));
+            }
+            result.setAgePercentiles(agePercentiles);
+        }
+
+        log.info("Method getAnalytics completed with result: {}", result);
+        return result;
+    }
+
     public Collection<StudentDto> findFileLastStudents() {
         log.info("Method findFileLastStudents called");
 
@@ -187,14 +434,7 @@ public class StudentService {
     public Collection<String> findNamesStartsWithAAscUpperCase() {
         log.info("Method findNamesStartsWithAAsc called");
 
-        List<String> result = repository
-                .findAll()
-                .stream()
-                .filter(s -> s.getName().startsWith("A"))
-                .map(s -> s.getName().toUpperCase())
-                .sorted()
-                .distinct()
-                .toList();
+        List<String> result = repository.findUpperCaseNamesStartingWithA();
 
         log.info("Method findNamesStartsWithAAsc completed with result size: {}", result.size());
         return result;
@@ -203,12 +443,11 @@ public class StudentService {
     public String getAvgAge() {
         log.info("Method getAvgAge called");
 
-        Double avgAge = repository
-                .findAll()
-                .stream()
-                .mapToDouble(Student::getAge)
-                .average()
-                .orElseThrow(() -> new StudentNotFoundException("There are not students"));
+        StudentStatsDto studentStats = stats.getStats();
+        if (studentStats.getAgeCount() == 0) {
+            throw new StudentNotFoundException("There are not students");
+        }
+        double avgAge = studentStats.getAverageAge();
 
         String result = String.format("%.2f", avgAge);
 
@@ -216,68 +455,86 @@ public class StudentService {
         return result;
     }
 
-    public void printParallel() {
+    // первые два имени печатаются в потоке запроса, остальные - парами в пуле, в порядке готовности пар
+    public List<String> printParallel() {
         log.info("Method printParallel called");
 
-        List<StudentDto> students = repository
-                .findAll()
-                .stream()
-                .map(StudentDto::toDto)
-                .limit(6)
-                .toList();
+        List<String> names = firstSixNames("printParallel");
+        names.subList(0, 2).forEach(System.out::println);
+        List<String> result = new ArrayList<>(names.subList(0, 2));
+        result.addAll(roster.process(names.subList(2, 6), 2, false, this::printNames));
 
-        if (students.size() < 6) {
-            throw new RuntimeException("Too few students for method printParallel");
-        }
-
-        System.out.println(students.get(0).getName());
-        System.out.println(students.get(1).getName());
+        log.info("Method printParallel completed with result: {}", result);
+        return result;
+    }
 
-        new Thread(() -> {
-            System.out.println(students.get(2).getName());
-            System.out.println(students.get(3).getName());
-        }).start();
+    // то же, но пара печатается целиком под общей блокировкой, а результат идёт в порядке списка
+    public List<String> printSynchronized() {
+        log.info("Method printSynchronized called");
 
-        new Thread(() -> {
-            System.out.println(students.get(4).getName());
-            System.out.println(students.get(5).getName());
-        }).start();
+        List<String> names = firstSixNames("printSynchronized");
+        List<String> result = new ArrayList<>(printNamesSynchronized(names.subList(0, 2)));
+        result.addAll(roster.process(names.subList(2, 6), 2, true, this::printNamesSynchronized));
 
-        log.info("Method printParallel completed");
+        log.info("Method printSynchronized completed with result: {}", result);
+        return result;
     }
 
-    public void printSynchronized() {
-        log.info("Method printSynchronized called");
+    public RosterStatsDto getRosterStats() {
+        log.info("Method getRosterStats called");
 
-        List<StudentDto> students = repository
-                .findAll()
+        RosterStatsDto result = roster.getStats();
+
+        log.info("Method getRosterStats completed with result: {}", result);
+        return result;
+    }
+
+    private List<String> firstSixNames(String method) {
+        List<String> names = repository
+                .findByIdGreaterThanOrderByIdAsc(0, Limit.of(6))
                 .stream()
-                .map(StudentDto::toDto)
-                .limit(6)
+                .map(Student::getName)
                 .toList();
-
-        if (students.size() < 6) {
-            throw new RuntimeException("Too few students for method printSynchronized");
+        if (names.size() < 6) {
+            throw new RuntimeException("Too few students for method " + method);
         }
+        return names;
+    }
 
-        System.out.println(students.get(0).getName());
-        System.out.println(students.get(1).getName());
-
-        synchronizedMethod(students);
+    private List<String> printNames(List<String> names) {
+        names.forEach(System.out::println);
+        return names;
+    }
 
-        log.info("Method printSynchronized completed");
+    private List<String> printNamesSynchronized(List<String> names) {
+        printLock.lock();
+        try {
+            return printNames(names);
+        } finally {
+            printLock.unlock();
+        }
     }
 
-    private synchronized void synchronizedMethod(List<StudentDto> students) {
-        new Thread(() -> {
-            System.out.println(students.get(2).getName());
-            System.out.println(students.get(3).getName());
-        }).start();
+    // nearest-rank: наименьший возраст, до которого включительно набирается percent% студентов
+    private static int percentile(NavigableMap<Integer, Long> ageHistogram, long total, int percent) {
+        long rank = Math.max(1, (total * percent + 99) / 100);
+        long seen = 0;
+        for (Map.Entry<Integer, Long> entry : ageHistogram.entrySet()) {
+            seen += entry.getValue();
+            if (seen >= rank) {
+                return entry.getKey();
+            }
+        }
+        return ageHistogram.lastKey();
+    }
 
-        new Thread(() -> {
-            System.out.println(students.get(4).getName());
-            System.out.println(students.get(5).getName());
-        }).start();
+    // возраст и факультет удалённых строк неизвестны: статистика пересчитывается при следующем чтении
+    private int deleted(int count) {
+        if (count > 0) {
+            stats.invalidate();
+            facultyService.studentsChanged();
+        }
+        return count;
     }
 
     private void notNullParameterChecker(Object o) {
@@ -297,4 +554,13 @@ public class StudentService {
             throw new IncorrectAgeException("Age can't be less than 1");
         }
     }
-}
+
+    private void pageParametersChecker(long afterId, int limit) {
+        if (afterId < 0) {
+            throw new IncorrectPageParameterException("after_id can't be less than 0");
+        }
+        if (limit < 1 || limit > KeysetPageDto.MAX_LIMIT) {
+            throw new IncorrectPageParameterException("limit must be between 1 and " + KeysetPageDto.MAX_LIMIT);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,8 @@
+package ru.hogwarts.school.service;
+
+public enum SumStrategy {
+    // сумма арифметической прогрессии: O(1) для любого диапазона
+    FORMULA,
+    // честное сложение всех чисел на отдельном ForkJoinPool, с таймаутом
+    FORK_JOIN
+}
@@ -0,0 +1,7 @@
+-- liquibase formatted sql
+
+-- student_name_index собран с правилами сортировки базы, а при не-C локали обычный B-tree
+-- для LIKE 'A%' не подходит. text_pattern_ops сравнивает побайтово и обслуживает префиксный поиск
+
+-- changeset agorohov:6
+CREATE INDEX student_name_pattern_index ON student (name text_pattern_ops);
@@ -0,0 +1,8 @@
+-- liquibase formatted sql
+
+-- SHA-256 файла аватарки и размеры картинки: считаются при загрузке, у старых аватарок остаются пустыми
+
+-- changeset agorohov:9
+ALTER TABLE avatar ADD COLUMN IF NOT EXISTS content_hash VARCHAR(64);
+ALTER TABLE avatar ADD COLUMN IF NOT EXISTS width INTEGER;
+ALTER TABLE avatar ADD COLUMN IF NOT EXISTS height INTEGER;
@@ -0,0 +1,10 @@
+-- liquibase formatted sql
+
+-- Статус фонового построения превью (AvatarPreviewService). На базах, где колонку уже создал ddl-auto,
+-- заполняются только пустые статусы: готовое превью - READY, остальные - PROCESSING,
+-- их превью достроит resumePending при следующем запуске
+
+-- changeset agorohov:12
+ALTER TABLE avatar ADD COLUMN IF NOT EXISTS preview_status VARCHAR(16);
+UPDATE avatar SET preview_status = 'READY' WHERE preview_status IS NULL AND preview_hash IS NOT NULL;
+UPDATE avatar SET preview_status = 'PROCESSING' WHERE preview_status IS NULL;
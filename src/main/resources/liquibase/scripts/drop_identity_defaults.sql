@@ -0,0 +1,13 @@
+-- liquibase formatted sql
+
+-- id выдаёт Hibernate из сиквенсов agorohov:3-5, IDENTITY-генераторы колонок остались от ddl-auto и больше
+-- не используются. Их значения отстают от сиквенсов, поэтому INSERT без id выдал бы уже занятый ключ.
+-- DROP DEFAULT - на случай serial-колонок: у identity-колонки default снимается через DROP IDENTITY
+
+-- changeset agorohov:11
+ALTER TABLE student ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE student ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE faculty ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE faculty ALTER COLUMN id DROP DEFAULT;
+ALTER TABLE avatar ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE avatar ALTER COLUMN id DROP DEFAULT;
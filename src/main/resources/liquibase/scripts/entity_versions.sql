@@ -0,0 +1,8 @@
+-- liquibase formatted sql
+
+-- Версии строк для @Version: optimistic locking при правках и ETag в ответах GET
+
+-- changeset agorohov:10
+ALTER TABLE student ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE faculty ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE avatar ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,17 @@
+-- liquibase formatted sql
+
+-- Сиквенсы с шагом 50 под pooled/pooled-lo оптимизаторы Hibernate (allocationSize = 50 в сущностях).
+-- Стартуют с MAX(id) + 50: так первый блок не пересекается с уже выданными IDENTITY-значениями
+-- ни для pooled (блок заканчивается значением), ни для pooled-lo (блок начинается значением)
+
+-- changeset agorohov:3
+CREATE SEQUENCE IF NOT EXISTS student_seq INCREMENT BY 50;
+SELECT setval('student_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM student), false);
+
+-- changeset agorohov:4
+CREATE SEQUENCE IF NOT EXISTS faculty_seq INCREMENT BY 50;
+SELECT setval('faculty_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM faculty), false);
+
+-- changeset agorohov:5
+CREATE SEQUENCE IF NOT EXISTS avatar_seq INCREMENT BY 50;
+SELECT setval('avatar_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM avatar), false);
@@ -0,0 +1,24 @@
+-- liquibase formatted sql
+
+-- Превью хранятся отдельно от аватарок и адресуются SHA-256 своего содержимого: одинаковые картинки
+-- дают одну строку, а выборки метаданных аватарок не тянут байты превью
+
+-- changeset agorohov:7
+CREATE TABLE IF NOT EXISTS preview_blob (
+    hash VARCHAR(64) PRIMARY KEY,
+    data BYTEA NOT NULL
+);
+ALTER TABLE avatar ADD COLUMN IF NOT EXISTS preview_hash VARCHAR(64);
+CREATE INDEX IF NOT EXISTS avatar_preview_hash_index ON avatar (preview_hash);
+
+-- Переносим превью из large object колонки avatar.data и удаляем её вместе с самими large objects
+
+-- changeset agorohov:8
+-- preconditions onFail:MARK_RAN
+-- precondition-sql-check expectedResult:1 SELECT COUNT(*) FROM information_schema.columns WHERE table_name = 'avatar' AND column_name = 'data'
+INSERT INTO preview_blob (hash, data)
+SELECT encode(sha256(lo_get(data)), 'hex'), lo_get(data) FROM avatar WHERE data IS NOT NULL
+ON CONFLICT (hash) DO NOTHING;
+UPDATE avatar SET preview_hash = encode(sha256(lo_get(data)), 'hex') WHERE data IS NOT NULL;
+SELECT lo_unlink(data) FROM avatar WHERE data IS NOT NULL;
+ALTER TABLE avatar DROP COLUMN data;
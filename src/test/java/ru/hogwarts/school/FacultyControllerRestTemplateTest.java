@@ -10,6 +10,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.http.*;
+import org.springframework.test.context.TestPropertySource;
 import ru.hogwarts.school.controller.FacultyController;
 import ru.hogwarts.school.dto.FacultyDto;
 import ru.hogwarts.school.dto.StudentDto;
@@ -21,6 +22,8 @@ import ru.hogwarts.school.repository.StudentRepository;
 import java.util.List;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+// тестовые данные создаются и удаляются напрямую через репозитории, мимо кэша факультетов и статистики студентов
+@TestPropertySource(properties = {"faculty.cache.max-size=0", "student.stats.max-staleness=0"})
 public class FacultyControllerRestTemplateTest {
 
     @LocalServerPort
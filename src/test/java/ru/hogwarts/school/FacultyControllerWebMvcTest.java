@@ -1,5 +1,6 @@
 package ru.hogwarts.school;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -7,15 +8,20 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.hogwarts.school.cache.FacultyCache;
+import ru.hogwarts.school.cache.StudentStatsCache;
 import ru.hogwarts.school.controller.FacultyController;
-import ru.hogwarts.school.exception.FacultyNotFoundException;
+import ru.hogwarts.school.dto.StudentDto;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.repository.FacultyRepository;
 import ru.hogwarts.school.repository.StudentRepository;
 import ru.hogwarts.school.service.FacultyService;
+import ru.hogwarts.school.service.RosterProcessor;
 import ru.hogwarts.school.service.StudentService;
 
 import java.util.List;
@@ -23,10 +29,12 @@ import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = FacultyController.class)
+@TestPropertySource(properties = {"faculty.cache.max-size=0", "student.stats.max-staleness=0"})
 class FacultyControllerWebMvcTest {
 
     @Autowired
@@ -40,6 +48,14 @@ class FacultyControllerWebMvcTest {
     @SpyBean
     private FacultyService facultyService;
     @SpyBean
+    private FacultyCache facultyCache;
+    @SpyBean
+    private StudentStatsCache studentStatsCache;
+    @SpyBean
+    private RosterProcessor rosterProcessor;
+    @SpyBean
+    private SimpleMeterRegistry meterRegistry;
+    @SpyBean
     private StudentService studentService;
 
     private Faculty faculty;
@@ -142,15 +158,18 @@ class FacultyControllerWebMvcTest {
 
     @Test
     void deleteFacultyTest() throws Exception {
-        when(facultyRepository.findById(anyLong())).thenReturn(Optional.of(faculty));
-        doNothing().when(facultyRepository).deleteById(anyLong());
+        when(facultyRepository.deleteWithStudents(anyLong())).thenReturn(1);
 
-        facultyRepository.deleteById(faculty.getId());
+        mockMvc.perform(MockMvcRequestBuilders
+                        .delete(
+                                "/faculty/{id}",
+                                faculty.getId()))
+                .andExpect(status().isOk());
 
-        verify(facultyRepository, times(1)).deleteById(anyLong());
+        verify(facultyRepository, times(1)).deleteWithStudents(faculty.getId());
 
         // тест удаления несуществующего факультета
-        when(facultyRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(facultyRepository.deleteWithStudents(anyLong())).thenReturn(0);
 
         mockMvc.perform(MockMvcRequestBuilders
                         .delete(
@@ -195,16 +214,18 @@ class FacultyControllerWebMvcTest {
 
     @Test
     void findStudentsByFacultyNameTest() throws Exception {
-        when(facultyRepository.findByNameIgnoreCase(anyString())).thenReturn(Optional.of(faculty));
+        when(studentRepository.findDtoByFacultyName(anyString())).thenReturn(List.of(new StudentDto(1L, "Harry", 11)));
 
         mockMvc.perform(MockMvcRequestBuilders
                         .get(
                                 "/faculty/students?facultyName={facultyName}",
                                 faculty.getName())
                         .accept(MediaType.APPLICATION_JSON))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Harry"));
 
         // тест получения студентов у несуществующего факультета
+        when(studentRepository.findDtoByFacultyName(anyString())).thenReturn(List.of());
         when(facultyRepository.findByNameIgnoreCase(anyString())).thenReturn(Optional.empty());
 
         mockMvc.perform(MockMvcRequestBuilders
@@ -215,6 +236,29 @@ class FacultyControllerWebMvcTest {
 
     }
 
+    @Test
+    void findStudentsByFacultyNamePageTest() throws Exception {
+        when(studentRepository.findDtoByFacultyNameAfter(anyString(), anyLong(), any(Limit.class)))
+                .thenReturn(List.of(new StudentDto(1L, "Harry", 11), new StudentDto(2L, "Ron", 11)));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get(
+                                "/faculty/students?facultyName={facultyName}&limit=1&after_id=0",
+                                faculty.getName())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.content[0].name").value("Harry"))
+                .andExpect(jsonPath("$.nextToken").isNotEmpty());
+        verify(studentRepository).findDtoByFacultyNameAfter(faculty.getName(), 0L, Limit.of(2));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get(
+                                "/faculty/students?facultyName={facultyName}&limit=0",
+                                faculty.getName()))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getLongestNameTest() throws Exception {
         long id = 2L;
@@ -226,7 +270,7 @@ class FacultyControllerWebMvcTest {
         facultyWithLongestName.setName(facultyName);
         facultyWithLongestName.setColor(facultyColor);
 
-        when(facultyRepository.findAll()).thenReturn(List.of(faculty, facultyWithLongestName));
+        when(facultyRepository.findLongestName()).thenReturn(Optional.of(facultyWithLongestName.getName()));
 
         mockMvc.perform(MockMvcRequestBuilders
                         .get("/faculty/get_longest_name")
@@ -235,7 +279,7 @@ class FacultyControllerWebMvcTest {
                 .andExpect(content().string(facultyWithLongestName.getName()));
 
         // тест получения самого длинного имени факультета когда нет факультетов
-        when(facultyRepository.findAll()).thenThrow(FacultyNotFoundException.class);
+        when(facultyRepository.findLongestName()).thenReturn(Optional.empty());
 
         mockMvc.perform(MockMvcRequestBuilders
                         .get("/faculty/get_longest_name")
@@ -11,6 +11,7 @@ import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
+import org.springframework.test.context.TestPropertySource;
 import ru.hogwarts.school.controller.StudentController;
 import ru.hogwarts.school.dto.FacultyDto;
 import ru.hogwarts.school.dto.StudentDto;
@@ -24,6 +25,8 @@ import java.util.List;
 import java.util.Objects;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+// тестовые данные создаются и удаляются напрямую через репозитории, мимо кэша факультетов и статистики студентов
+@TestPropertySource(properties = {"faculty.cache.max-size=0", "student.stats.max-staleness=0"})
 class StudentControllerRestTemplateTest {
 
     @LocalServerPort
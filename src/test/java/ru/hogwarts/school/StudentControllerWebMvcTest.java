@@ -1,5 +1,6 @@
 package ru.hogwarts.school;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -7,25 +8,40 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import ru.hogwarts.school.cache.FacultyCache;
+import ru.hogwarts.school.cache.StudentStatsCache;
 import ru.hogwarts.school.controller.StudentController;
+import ru.hogwarts.school.dto.KeysetPageDto;
+import ru.hogwarts.school.dto.StudentDto;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.StudentAgeGroup;
+import ru.hogwarts.school.repository.StudentDeletion;
 import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.repository.StudentTotals;
+import ru.hogwarts.school.repository.StudentUpdate;
 import ru.hogwarts.school.service.FacultyService;
+import ru.hogwarts.school.service.RosterProcessor;
 import ru.hogwarts.school.service.StudentService;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = StudentController.class)
+@TestPropertySource(properties = {"faculty.cache.max-size=0", "student.stats.max-staleness=0"})
 class StudentControllerWebMvcTest {
 
     @Autowired
@@ -40,6 +56,14 @@ class StudentControllerWebMvcTest {
     private StudentService service;
     @SpyBean
     private FacultyService facultyService;
+    @SpyBean
+    private FacultyCache facultyCache;
+    @SpyBean
+    private StudentStatsCache studentStatsCache;
+    @SpyBean
+    private RosterProcessor rosterProcessor;
+    @SpyBean
+    private SimpleMeterRegistry meterRegistry;
 
     private Faculty faculty;
     private Student student;
@@ -125,9 +149,67 @@ class StudentControllerWebMvcTest {
     }
 
     @Test
-    void editTest() throws Exception {
+    void getNotModifiedTest() throws Exception {
+        student.setVersion(3);
         when(studentRepository.findById(anyLong())).thenReturn(Optional.of(student));
-        when(studentRepository.save(any(Student.class))).thenReturn(student);
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/student/{id}", student.getId())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"1-3\""))
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(jsonPath("$.version").value(3));
+
+        // версия не изменилась: 304 без тела
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/student/{id}", student.getId())
+                        .header("If-None-Match", "W/\"1-3\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "W/\"1-3\""))
+                .andExpect(content().string(""));
+
+        student.setVersion(4);
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/student/{id}", student.getId())
+                        .header("If-None-Match", "W/\"1-3\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"1-4\""));
+    }
+
+    @Test
+    void getAllNotModifiedTest() throws Exception {
+        when(studentRepository.findAll()).thenReturn(List.of(student));
+
+        String eTag = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/student")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/student")
+                        .header("If-None-Match", eTag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified());
+
+        // удалённый студент меняет ETag списка
+        when(studentRepository.findAll()).thenReturn(List.of());
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/student")
+                        .header("If-None-Match", eTag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void editTest() throws Exception {
+        StudentUpdate update = studentUpdate(student.getAge(), 1L);
+        when(studentRepository.updateVersioned(anyLong(), anyString(), anyInt(), any())).thenReturn(Optional.of(update));
 
         String editedName = "Edited Name";
         int editedAge = student.getAge() + 100;
@@ -143,12 +225,15 @@ class StudentControllerWebMvcTest {
                         .contentType(MediaType.APPLICATION_JSON)
                         .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"1-1\""))
                 .andExpect(jsonPath("$.id").value(student.getId()))
                 .andExpect(jsonPath("$.name").value(editedName))
-                .andExpect(jsonPath("$.age").value(editedAge));
+                .andExpect(jsonPath("$.age").value(editedAge))
+                .andExpect(jsonPath("$.version").value(1));
 
         // тест редактирования несуществующего студента
-        when(studentRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(studentRepository.updateVersioned(anyLong(), anyString(), anyInt(), any())).thenReturn(Optional.empty());
+        when(studentRepository.existsById(anyLong())).thenReturn(false);
 
         mockMvc.perform((MockMvcRequestBuilders
                         .put("/student"))
@@ -157,21 +242,103 @@ class StudentControllerWebMvcTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void editIfMatchTest() throws Exception {
+        when(studentRepository.updateVersioned(1L, "Gena", 35, 3L)).thenReturn(Optional.empty());
+        when(studentRepository.existsById(1L)).thenReturn(true);
+
+        JSONObject studentObject = new JSONObject();
+        studentObject.put("id", student.getId());
+        studentObject.put("name", "Gena");
+        studentObject.put("age", 35);
+
+        // версию 3 уже кто-то изменил
+        mockMvc.perform((MockMvcRequestBuilders
+                        .put("/student"))
+                        .header("If-Match", "W/\"1-3\"")
+                        .content(studentObject.toString())
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isPreconditionFailed());
+
+        // ETag другого студента
+        mockMvc.perform((MockMvcRequestBuilders
+                        .put("/student"))
+                        .header("If-Match", "W/\"2-3\"")
+                        .content(studentObject.toString())
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isPreconditionFailed());
+
+        StudentUpdate update = studentUpdate(34, 5L);
+        when(studentRepository.updateVersioned(1L, "Gena", 35, 4L)).thenReturn(Optional.of(update));
+
+        mockMvc.perform((MockMvcRequestBuilders
+                        .put("/student"))
+                        .header("If-Match", "W/\"1-4\"")
+                        .content(studentObject.toString())
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"1-5\""));
+    }
+
     @Test
     void deleteTest() throws Exception {
-        when(studentRepository.findById(anyLong())).thenReturn(Optional.of(student));
-        doNothing().when(studentRepository).deleteById(anyLong());
+        StudentDeletion deletion = mock(StudentDeletion.class);
+        when(deletion.getAge()).thenReturn(student.getAge());
+        when(deletion.getFacultyId()).thenReturn(faculty.getId());
+        when(studentRepository.deleteReturning(anyLong())).thenReturn(Optional.of(deletion));
 
-        studentRepository.deleteById(student.getId());
+        mockMvc.perform(MockMvcRequestBuilders
+                        .delete("/student/{id}", student.getId()))
+                .andExpect(status().isOk());
 
-        verify(studentRepository).deleteById(student.getId());
+        verify(studentRepository).deleteReturning(student.getId());
 
         // тест удаления несуществующего студента
-        when(studentRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(studentRepository.deleteReturning(anyLong())).thenReturn(Optional.empty());
+        // реестр метрик общий для всех тестов класса: считается прирост
+        double notFoundErrors = meterRegistry.counter("school.errors",
+                "exception", "StudentNotFoundException", "status", "404").count();
 
         mockMvc.perform(MockMvcRequestBuilders
                         .delete("/student/{id}", student.getId()))
                 .andExpect(status().isNotFound());
+        assertEquals(notFoundErrors + 1, meterRegistry.counter("school.errors",
+                "exception", "StudentNotFoundException", "status", "404").count());
+    }
+
+    @Test
+    void bulkTest() throws Exception {
+        when(facultyRepository.findById(faculty.getId())).thenReturn(Optional.of(faculty));
+        when(studentRepository.moveToFaculty(anyLong(), anyLong())).thenReturn(2);
+        when(studentRepository.incrementAges(1, null)).thenReturn(5);
+        when(studentRepository.deleteAllByIdIn(List.of(1L, 2L))).thenReturn(2);
+        when(studentRepository.deleteByFilter(null, 10, 20)).thenReturn(4);
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .put("/student/bulk/faculty?from=7&to={to}", faculty.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(2));
+        verify(studentRepository).moveToFaculty(7L, faculty.getId());
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .put("/student/bulk/age"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(5));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .delete("/student/bulk?ids=1,2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(2));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .delete("/student/bulk?min_age=10&max_age=20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.affected").value(4));
+
+        // без фильтра удалять всех нельзя
+        mockMvc.perform(MockMvcRequestBuilders
+                        .delete("/student/bulk"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
@@ -184,6 +351,55 @@ class StudentControllerWebMvcTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    void getPageTest() throws Exception {
+        Student anotherStudent = new Student(2L, "Test student", 45);
+        when(studentRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2))).thenReturn(List.of(student, anotherStudent));
+        when(studentRepository.findByIdGreaterThanOrderByIdAsc(student.getId(), Limit.of(2))).thenReturn(List.of(anotherStudent));
+
+        String nextToken = KeysetPageDto.encodeToken(student.getId());
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/student?limit=1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(student.getId()))
+                .andExpect(jsonPath("$.nextToken").value(nextToken));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/student?limit=1&token={token}", nextToken)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(anotherStudent.getId()))
+                .andExpect(jsonPath("$.nextToken").doesNotExist());
+
+        // тест с некорректным токеном
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/student?limit=1&token=broken")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void streamAllTest() throws Exception {
+        StudentDto anotherStudentDto = new StudentDto(2L, "Test student", 45, 5L);
+        when(studentRepository.streamAll()).thenReturn(Stream.of(StudentDto.toDto(student), anotherStudentDto));
+
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/student/stream")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String expected = "{\"id\":1,\"name\":\"Gena\",\"age\":34,\"version\":0}\n"
+                + "{\"id\":2,\"name\":\"Test student\",\"age\":45,\"version\":5}\n";
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(expected));
+    }
+
     @Test
     void getAllByAgeTest() throws Exception {
         when(studentRepository.findAllByAge(anyInt())).thenReturn(List.of(student));
@@ -235,7 +451,8 @@ class StudentControllerWebMvcTest {
 
     @Test
     void countTest() throws Exception {
-        when(studentRepository.count()).thenReturn(1L);
+        List<StudentTotals> totals = List.of(studentTotals(faculty.getId(), 1, student.getAge()));
+        when(studentRepository.sumByFaculty()).thenReturn(totals);
 
         mockMvc.perform(MockMvcRequestBuilders
                         .get("/student/count")
@@ -245,7 +462,7 @@ class StudentControllerWebMvcTest {
                 .andExpect(content().string("1"));
 
         // тест получения количества студентов из пустой таблицы
-        when(studentRepository.count()).thenReturn(0L);
+        when(studentRepository.sumByFaculty()).thenReturn(List.of());
 
         mockMvc.perform(MockMvcRequestBuilders
                         .get("/student/count")
@@ -259,7 +476,8 @@ class StudentControllerWebMvcTest {
 
     @Test
     void avgAgeTest() throws Exception {
-        when(studentRepository.avgAge()).thenReturn(student.getAge());
+        List<StudentTotals> totals = List.of(studentTotals(faculty.getId(), 1, student.getAge()));
+        when(studentRepository.sumByFaculty()).thenReturn(totals);
 
         mockMvc.perform(MockMvcRequestBuilders
                         .get("/student/avg_age")
@@ -269,6 +487,45 @@ class StudentControllerWebMvcTest {
                 .andExpect(content().string(student.getAge().toString()));
     }
 
+    @Test
+    void getStatsTest() throws Exception {
+        List<StudentTotals> totals = List.of(
+                studentTotals(faculty.getId(), 2, 40),
+                studentTotals(null, 1, 30)
+        );
+        when(studentRepository.sumByFaculty()).thenReturn(totals);
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/student/stats")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(3))
+                .andExpect(jsonPath("$.ageSum").value(70))
+                .andExpect(jsonPath("$.studentsByFaculty." + faculty.getId()).value(2));
+    }
+
+    @Test
+    void getAnalyticsTest() throws Exception {
+        StudentAgeGroup group = mock(StudentAgeGroup.class);
+        when(group.getAge()).thenReturn(student.getAge());
+        when(group.getFacultyId()).thenReturn(faculty.getId());
+        when(group.getStudentCount()).thenReturn(2L);
+        when(group.getNameLengthSum()).thenReturn(2L * student.getName().length());
+        when(group.getMinNameLength()).thenReturn(student.getName().length());
+        when(group.getMaxNameLength()).thenReturn(student.getName().length());
+        when(studentRepository.groupByAgeAndFaculty()).thenReturn(List.of(group));
+
+        mockMvc.perform(MockMvcRequestBuilders
+                        .get("/student/analytics")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(2))
+                .andExpect(jsonPath("$.ageHistogram." + student.getAge()).value(2))
+                .andExpect(jsonPath("$.studentsByFaculty." + faculty.getId()).value(2))
+                .andExpect(jsonPath("$.agePercentiles.p50").value(student.getAge()))
+                .andExpect(jsonPath("$.maxNameLength").value(student.getName().length()));
+    }
+
     @Test
     void findFileLastStudentsTest() throws Exception {
         when(studentRepository.findFileLastStudents()).thenReturn(List.of(student));
@@ -282,7 +539,7 @@ class StudentControllerWebMvcTest {
 
     @Test
     void findNamesStartsWithAAscUpperCaseTest() throws Exception {
-        when(studentRepository.findAll()).thenReturn(List.of(student));
+        when(studentRepository.findUpperCaseNamesStartingWithA()).thenReturn(List.of(student.getName().toUpperCase()));
 
         mockMvc.perform(MockMvcRequestBuilders
                         .get("/student/find_names_starts_with_A_asc_upper_case")
@@ -299,7 +556,8 @@ class StudentControllerWebMvcTest {
         anotherStudent.setAge(45);
         anotherStudent.setFaculty(faculty);
 
-        when(studentRepository.findAll()).thenReturn(List.of(student, anotherStudent));
+        List<StudentTotals> totals = List.of(studentTotals(faculty.getId(), 2, student.getAge() + anotherStudent.getAge()));
+        when(studentRepository.sumByFaculty()).thenReturn(totals);
 
         String expected = String.format("%.2f", (student.getAge() + anotherStudent.getAge()) / 2d);
 
@@ -309,4 +567,20 @@ class StudentControllerWebMvcTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string(expected));
     }
-}
\ No newline at end of file
+
+    private static StudentUpdate studentUpdate(Integer oldAge, Long version) {
+        StudentUpdate update = mock(StudentUpdate.class);
+        when(update.getOldAge()).thenReturn(oldAge);
+        when(update.getVersion()).thenReturn(version);
+        return update;
+    }
+
+    private static StudentTotals studentTotals(Long facultyId, long studentCount, long ageSum) {
+        StudentTotals totals = mock(StudentTotals.class);
+        when(totals.getFacultyId()).thenReturn(facultyId);
+        when(totals.getStudentCount()).thenReturn(studentCount);
+        when(totals.getAgeCount()).thenReturn(studentCount);
+        when(totals.getAgeSum()).thenReturn(ageSum);
+        return totals;
+    }
+}
@@ -0,0 +1,200 @@
+package ru.hogwarts.school.cache;
+
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.dto.CacheStatsDto;
+import ru.hogwarts.school.dto.FacultyDto;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FacultyCacheTest {
+
+    private final FacultyDto faculty = new FacultyDto(1L, "FacultyName", "Color", new ArrayList<>());
+
+    @Test
+    void getByIdTest() {
+        FacultyCache out = new FacultyCache(10, Duration.ofMinutes(5), FacultySelectionStrategy.UNIFORM);
+        AtomicInteger loads = new AtomicInteger();
+
+        Optional<FacultyDto> first = out.getById(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(faculty);
+        });
+        Optional<FacultyDto> second = out.getById(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(faculty);
+        });
+
+        assertEquals(Optional.of(faculty), first);
+        assertEquals(Optional.of(faculty), second);
+        assertEquals(1, loads.get());
+        assertEquals(new CacheStatsDto(1, 1, 1), out.getStats());
+    }
+
+    @Test
+    void getByNameIgnoreCaseTest() {
+        FacultyCache out = new FacultyCache(10, Duration.ofMinutes(5), FacultySelectionStrategy.UNIFORM);
+
+        out.getByName("FacultyName", name -> Optional.of(faculty));
+        Optional<FacultyDto> actual = out.getByName("FACULTYNAME", name -> fail("should be cached"));
+
+        assertEquals(Optional.of(faculty), actual);
+    }
+
+    @Test
+    void returnsCopyTest() {
+        FacultyCache out = new FacultyCache(10, Duration.ofMinutes(5), FacultySelectionStrategy.UNIFORM);
+
+        out.getById(1L, id -> Optional.of(faculty)).orElseThrow().setName("Changed");
+        FacultyDto actual = out.getById(1L, id -> fail("should be cached")).orElseThrow();
+
+        assertEquals(faculty.getName(), actual.getName());
+    }
+
+    @Test
+    void notFoundIsNotCachedTest() {
+        FacultyCache out = new FacultyCache(10, Duration.ofMinutes(5), FacultySelectionStrategy.UNIFORM);
+        AtomicInteger loads = new AtomicInteger();
+
+        out.getById(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+        out.getById(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void lruEvictionTest() {
+        FacultyCache out = new FacultyCache(2, Duration.ofMinutes(5), FacultySelectionStrategy.UNIFORM);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (long id = 1; id <= 3; id++) {
+            out.getById(id, key -> {
+                loads.incrementAndGet();
+                return Optional.of(new FacultyDto(key, "Faculty" + key, "Color", new ArrayList<>()));
+            });
+        }
+        // первый вытеснен, третий остался
+        out.getById(3L, key -> fail("should be cached"));
+        out.getById(1L, key -> {
+            loads.incrementAndGet();
+            return Optional.of(faculty);
+        });
+
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void ttlExpirationTest() {
+        FacultyCache out = new FacultyCache(10, Duration.ZERO, FacultySelectionStrategy.UNIFORM);
+        AtomicInteger loads = new AtomicInteger();
+
+        out.getById(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(faculty);
+        });
+        out.getById(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(faculty);
+        });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidateTest() {
+        FacultyCache out = new FacultyCache(10, Duration.ofMinutes(5), FacultySelectionStrategy.UNIFORM);
+        AtomicInteger loads = new AtomicInteger();
+
+        out.getById(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(faculty);
+        });
+        out.invalidate();
+        out.getById(1L, id -> {
+            loads.incrementAndGet();
+            return Optional.of(faculty);
+        });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void getRandomTest() {
+        FacultyCache out = new FacultyCache(10, Duration.ofMinutes(5), FacultySelectionStrategy.UNIFORM);
+        List<FacultyDto> faculties = LongStream.rangeClosed(1, 5)
+                .mapToObj(id -> new FacultyDto(id, "Faculty" + id, "Color", new ArrayList<>()))
+                .toList();
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 100; i++) {
+            FacultyDto actual = out.getRandom(limit -> {
+                assertEquals(11, limit);
+                loads.incrementAndGet();
+                return faculties;
+            }, () -> fail("counts are not needed for uniform"), () -> fail("should not fall back")).orElseThrow();
+            assertTrue(faculties.contains(actual));
+        }
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void getRandomFallbackTest() {
+        // факультетов больше размера кэша - выбирает fallback
+        FacultyCache out = new FacultyCache(1, Duration.ofMinutes(5), FacultySelectionStrategy.UNIFORM);
+        List<FacultyDto> faculties = List.of(faculty, new FacultyDto(2L, "Other", "Color", new ArrayList<>()));
+
+        Optional<FacultyDto> actual = out.getRandom(limit -> faculties, Map::of, () -> Optional.of(faculty));
+
+        assertEquals(Optional.of(faculty), actual);
+
+        // выключенный кэш в базу за списком не ходит
+        FacultyCache disabled = new FacultyCache(0, Duration.ofMinutes(5), FacultySelectionStrategy.UNIFORM);
+        assertEquals(Optional.of(faculty), disabled.getRandom(limit -> fail("should not load"), Map::of, () -> Optional.of(faculty)));
+    }
+
+    @Test
+    void getRandomEmptyTest() {
+        FacultyCache out = new FacultyCache(10, Duration.ofMinutes(5), FacultySelectionStrategy.UNIFORM);
+
+        assertTrue(out.getRandom(limit -> List.of(), Map::of, Optional::empty).isEmpty());
+    }
+
+    @Test
+    void invalidateStudentCountsTest() {
+        FacultyCache out = new FacultyCache(10, Duration.ofMinutes(5), FacultySelectionStrategy.BALANCED);
+        FacultyDto other = new FacultyDto(2L, "Other", "Color", new ArrayList<>());
+        List<FacultyDto> faculties = List.of(faculty, other);
+        AtomicInteger countLoads = new AtomicInteger();
+        Map<Long, Long> counts = new HashMap<>(Map.of(1L, 0L, 2L, 5L));
+
+        assertEquals(faculty, out.getRandom(limit -> faculties, () -> {
+            countLoads.incrementAndGet();
+            return Map.copyOf(counts);
+        }, () -> fail("should not fall back")).orElseThrow());
+
+        // на первый факультет записали студентов в обход getRandom
+        counts.put(1L, 10L);
+        out.invalidateStudentCounts();
+
+        assertEquals(other, out.getRandom(limit -> faculties, () -> {
+            countLoads.incrementAndGet();
+            return Map.copyOf(counts);
+        }, () -> fail("should not fall back")).orElseThrow());
+        assertEquals(2, countLoads.get());
+    }
+}
@@ -0,0 +1,67 @@
+package ru.hogwarts.school.cache;
+
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.dto.FacultyDto;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FacultySamplerTest {
+
+    private List<FacultyDto> faculties(long count) {
+        return LongStream.rangeClosed(1, count)
+                .mapToObj(id -> new FacultyDto(id, "Faculty" + id, "Color", new ArrayList<>()))
+                .toList();
+    }
+
+    @Test
+    void uniformPicksEveryFacultyTest() {
+        FacultySampler out = new FacultySampler(faculties(4), Map.of());
+        Map<Long, Integer> picks = new HashMap<>();
+
+        for (int i = 0; i < 1000; i++) {
+            picks.merge(out.pick(FacultySelectionStrategy.UNIFORM).getId(), 1, Integer::sum);
+        }
+
+        assertEquals(4, picks.size());
+    }
+
+    @Test
+    void balancedFillsSmallestFacultiesFirstTest() {
+        // на первом факультете уже 10 студентов, остальные пустые
+        FacultySampler out = new FacultySampler(faculties(4), Map.of(1L, 10L));
+        Map<Long, Integer> picks = new HashMap<>();
+
+        for (int i = 0; i < 30; i++) {
+            picks.merge(out.pick(FacultySelectionStrategy.BALANCED).getId(), 1, Integer::sum);
+        }
+
+        // 30 новых студентов выравнивают факультеты до 10 + 0, 10, 10, 10
+        assertNull(picks.get(1L));
+        assertEquals(10, picks.get(2L));
+        assertEquals(10, picks.get(3L));
+        assertEquals(10, picks.get(4L));
+    }
+
+    @Test
+    void balancedOnManyFacultiesTest() {
+        int facultyCount = FacultySampler.FULL_SCAN_LIMIT * 4;
+        FacultySampler out = new FacultySampler(faculties(facultyCount), Map.of());
+        Map<Long, Integer> picks = new HashMap<>();
+
+        for (int i = 0; i < facultyCount * 100; i++) {
+            picks.merge(out.pick(FacultySelectionStrategy.BALANCED).getId(), 1, Integer::sum);
+        }
+
+        // power of two choices держит разброс в пределах нескольких студентов
+        int min = picks.values().stream().mapToInt(Integer::intValue).min().orElseThrow();
+        int max = picks.values().stream().mapToInt(Integer::intValue).max().orElseThrow();
+        assertEquals(facultyCount, picks.size());
+        assertTrue(max - min <= 10, "spread " + (max - min));
+    }
+}
@@ -0,0 +1,64 @@
+package ru.hogwarts.school.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import ru.hogwarts.school.dto.CacheStatsDto;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenditionCacheTest {
+
+    @Test
+    void getTest() {
+        RenditionCache out = new RenditionCache(DataSize.ofBytes(100));
+        byte[] data = new byte[10];
+
+        assertNull(out.get("a"));
+        out.put("a", data);
+
+        assertSame(data, out.get("a"));
+        assertEquals(10, out.getTotalBytes());
+        assertEquals(new CacheStatsDto(1, 1, 1), out.getStats());
+    }
+
+    @Test
+    void evictLeastRecentlyUsedTest() {
+        RenditionCache out = new RenditionCache(DataSize.ofBytes(100));
+        out.put("a", new byte[40]);
+        out.put("b", new byte[40]);
+        out.get("a");
+
+        out.put("c", new byte[40]);
+
+        // вытеснена b: к a обращались позже
+        assertNotNull(out.get("a"));
+        assertNull(out.get("b"));
+        assertNotNull(out.get("c"));
+        assertEquals(80, out.getTotalBytes());
+    }
+
+    @Test
+    void putReplaceAndRemoveTest() {
+        RenditionCache out = new RenditionCache(DataSize.ofBytes(100));
+        out.put("a", new byte[40]);
+        out.put("a", new byte[60]);
+        assertEquals(60, out.getTotalBytes());
+
+        out.remove("a");
+        assertNull(out.get("a"));
+        assertEquals(0, out.getTotalBytes());
+    }
+
+    @Test
+    void disabledAndTooLargeTest() {
+        RenditionCache disabled = new RenditionCache(DataSize.ofBytes(0));
+        disabled.put("a", new byte[1]);
+        assertNull(disabled.get("a"));
+
+        RenditionCache out = new RenditionCache(DataSize.ofBytes(100));
+        out.put("a", new byte[40]);
+        out.put("big", new byte[101]);
+        assertNull(out.get("big"));
+        assertNotNull(out.get("a"));
+    }
+}
@@ -0,0 +1,186 @@
+package ru.hogwarts.school.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import ru.hogwarts.school.dto.StudentStatsDto;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.repository.StudentTotals;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StudentStatsCacheTest {
+
+    private final StudentRepository repositoryMock = mock(StudentRepository.class);
+
+    @Test
+    void getStatsTest() {
+        List<StudentTotals> totals = List.of(studentTotals(1L, 2, 40), studentTotals(null, 1, 30));
+        when(repositoryMock.sumByFaculty()).thenReturn(totals);
+        StudentStatsCache out = new StudentStatsCache(repositoryMock, Duration.ofMinutes(5));
+
+        StudentStatsDto first = out.getStats();
+        StudentStatsDto second = out.getStats();
+
+        assertEquals(new StudentStatsDto(3, 3, 70, Map.of(1L, 2L)), first);
+        assertEquals(first, second);
+        verify(repositoryMock, times(1)).sumByFaculty();
+    }
+
+    @Test
+    void incrementalUpdateTest() {
+        List<StudentTotals> totals = List.of(studentTotals(1L, 2, 40));
+        when(repositoryMock.sumByFaculty()).thenReturn(totals);
+        StudentStatsCache out = new StudentStatsCache(repositoryMock, Duration.ofMinutes(5));
+        out.reconcile();
+
+        out.onCreated(30, 2L);
+        out.onAgeChanged(30, 35);
+        out.onDeleted(20, 1L);
+
+        assertEquals(new StudentStatsDto(2, 2, 55, Map.of(1L, 1L, 2L, 1L)), out.getStats());
+        verify(repositoryMock, times(1)).sumByFaculty();
+
+        out.onDeleted(20, 1L);
+        assertEquals(Map.of(2L, 1L), out.getStats().getStudentsByFaculty());
+    }
+
+    @Test
+    void bulkUpdateTest() {
+        List<StudentTotals> totals = List.of(studentTotals(1L, 2, 40), studentTotals(2L, 1, 20));
+        when(repositoryMock.sumByFaculty()).thenReturn(totals);
+        StudentStatsCache out = new StudentStatsCache(repositoryMock, Duration.ofMinutes(5));
+        out.reconcile();
+
+        out.onAgesIncremented(3, 1);
+        out.onMoved(1L, 2L, 2);
+
+        assertEquals(new StudentStatsDto(3, 3, 63, Map.of(2L, 3L)), out.getStats());
+        verify(repositoryMock, times(1)).sumByFaculty();
+    }
+
+    @Test
+    void peekCountTest() {
+        List<StudentTotals> totals = List.of(studentTotals(1L, 2, 40));
+        when(repositoryMock.sumByFaculty()).thenReturn(totals);
+        StudentStatsCache out = new StudentStatsCache(repositoryMock, Duration.ZERO);
+
+        // снимка ещё нет, а в базу peekCount не ходит
+        assertTrue(Double.isNaN(out.peekCount()));
+        verify(repositoryMock, never()).sumByFaculty();
+
+        out.getStats();
+        out.onCreated(30, 1L);
+
+        assertEquals(3, out.peekCount());
+        verify(repositoryMock, times(1)).sumByFaculty();
+    }
+
+    @Test
+    void reconcileAfterInvalidateTest() {
+        List<StudentTotals> totals = List.of(studentTotals(1L, 2, 40));
+        when(repositoryMock.sumByFaculty()).thenReturn(totals);
+        StudentStatsCache out = new StudentStatsCache(repositoryMock, Duration.ofMinutes(5));
+        out.getStats();
+
+        out.onCreated(30, 1L);
+        out.invalidate();
+
+        // после invalidate снимок снова берётся из базы, локальные изменения отбрасываются
+        assertEquals(new StudentStatsDto(2, 2, 40, Map.of(1L, 2L)), out.getStats());
+        verify(repositoryMock, times(2)).sumByFaculty();
+    }
+
+    @Test
+    void disabledTest() {
+        List<StudentTotals> totals = List.of(studentTotals(1L, 2, 40));
+        when(repositoryMock.sumByFaculty()).thenReturn(totals);
+        StudentStatsCache out = new StudentStatsCache(repositoryMock, Duration.ZERO);
+
+        out.reconcile();
+        out.onCreated(30, 1L);
+        out.getStats();
+        StudentStatsDto actual = out.getStats();
+
+        assertEquals(new StudentStatsDto(2, 2, 40, Map.of(1L, 2L)), actual);
+        verify(repositoryMock, times(2)).sumByFaculty();
+    }
+
+    @Test
+    void averageWithoutAgeTest() {
+        // у одного из трёх студентов возраст не указан
+        List<StudentTotals> totals = List.of(studentTotals(1L, 3, 2, 40));
+        when(repositoryMock.sumByFaculty()).thenReturn(totals);
+        StudentStatsCache out = new StudentStatsCache(repositoryMock, Duration.ofMinutes(5));
+        out.reconcile();
+
+        assertEquals(20, out.getStats().getAverageAge());
+
+        out.onCreated(null, 1L);
+        out.onAgeChanged(null, 26);
+
+        StudentStatsDto actual = out.getStats();
+        assertEquals(new StudentStatsDto(4, 3, 66, Map.of(1L, 4L)), actual);
+        assertEquals(22, actual.getAverageAge());
+    }
+
+    @Test
+    void applyAfterCommitTest() {
+        List<StudentTotals> totals = List.of(studentTotals(1L, 2, 40));
+        when(repositoryMock.sumByFaculty()).thenReturn(totals);
+        StudentStatsCache out = new StudentStatsCache(repositoryMock, Duration.ofMinutes(5));
+        out.reconcile();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            out.onCreated(30, 1L);
+            out.onDeleted(20, 1L);
+            // до коммита снимок не меняется
+            assertEquals(new StudentStatsDto(2, 2, 40, Map.of(1L, 2L)), out.getStats());
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(new StudentStatsDto(2, 2, 50, Map.of(1L, 2L)), out.getStats());
+    }
+
+    @Test
+    void discardOnRollbackTest() {
+        List<StudentTotals> totals = List.of(studentTotals(1L, 2, 40));
+        when(repositoryMock.sumByFaculty()).thenReturn(totals);
+        StudentStatsCache out = new StudentStatsCache(repositoryMock, Duration.ofMinutes(5));
+        out.reconcile();
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            out.onCreated(30, 1L);
+            out.invalidate();
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(new StudentStatsDto(2, 2, 40, Map.of(1L, 2L)), out.getStats());
+        verify(repositoryMock, times(1)).sumByFaculty();
+    }
+
+    private static StudentTotals studentTotals(Long facultyId, long studentCount, long ageSum) {
+        return studentTotals(facultyId, studentCount, studentCount, ageSum);
+    }
+
+    private static StudentTotals studentTotals(Long facultyId, long studentCount, long ageCount, long ageSum) {
+        StudentTotals totals = mock(StudentTotals.class);
+        when(totals.getFacultyId()).thenReturn(facultyId);
+        when(totals.getStudentCount()).thenReturn(studentCount);
+        when(totals.getAgeCount()).thenReturn(ageCount);
+        when(totals.getAgeSum()).thenReturn(ageSum);
+        return totals;
+    }
+}
@@ -0,0 +1,63 @@
+package ru.hogwarts.school.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.data.domain.Limit;
+import ru.hogwarts.school.cache.StudentStatsCache;
+import ru.hogwarts.school.exception.IncorrectIdException;
+import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.service.FacultyService;
+import ru.hogwarts.school.service.RosterProcessor;
+import ru.hogwarts.school.service.StudentService;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static ru.hogwarts.school.constants.Constants.*;
+
+class ServiceMetricsAspectTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final StudentRepository repositoryMock = mock(StudentRepository.class);
+    private final StudentService out = proxy(new StudentService(
+            repositoryMock, mock(FacultyService.class), mock(StudentStatsCache.class), mock(RosterProcessor.class)));
+
+    @Test
+    void timerAndResultSizeTest() {
+        when(repositoryMock.findAll()).thenReturn(List.of(STUDENT_1_SAM, STUDENT_2_AARON, STUDENT_3_AARON));
+        when(repositoryMock.findByIdGreaterThanOrderByIdAsc(0, Limit.of(3))).thenReturn(List.of(STUDENT_1_SAM));
+
+        out.getAll();
+        out.getAll();
+        out.getPage(0, 2);
+
+        assertEquals(2, registry.get(ServiceMetricsAspect.TIMER)
+                .tags("class", "StudentService", "method", "getAll", "exception", "none")
+                .timer().count());
+        assertEquals(6, registry.get(ServiceMetricsAspect.RESULT_SIZE)
+                .tags("class", "StudentService", "method", "getAll")
+                .summary().totalAmount());
+        assertEquals(1, registry.get(ServiceMetricsAspect.RESULT_SIZE)
+                .tags("method", "getPage")
+                .summary().totalAmount());
+    }
+
+    @Test
+    void exceptionTagTest() {
+        assertThrows(IncorrectIdException.class, () -> out.findById(0));
+
+        assertEquals(1, registry.get(ServiceMetricsAspect.TIMER)
+                .tags("method", "findById", "exception", "IncorrectIdException")
+                .timer().count());
+        assertNull(registry.find(ServiceMetricsAspect.RESULT_SIZE).tags("method", "findById").summary());
+    }
+
+    private StudentService proxy(StudentService target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new ServiceMetricsAspect(registry));
+        return factory.getProxy();
+    }
+}
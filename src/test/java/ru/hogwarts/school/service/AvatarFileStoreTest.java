@@ -0,0 +1,89 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import ru.hogwarts.school.exception.AvatarTooLargeException;
+import ru.hogwarts.school.exception.IncorrectAvatarException;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvatarFileStoreTest {
+
+    private final AvatarFileStore out = new AvatarFileStore(DataSize.ofKilobytes(64), 200);
+
+    @TempDir
+    private Path folder;
+
+    @Test
+    void storeTest() throws Exception {
+        byte[] png = png(120, 80);
+
+        AvatarFileStore.StoredFile actual = out.store(new ByteArrayInputStream(png), folder, "student_1");
+
+        assertEquals(folder.resolve("student_1.png"), actual.getPath());
+        assertArrayEquals(png, Files.readAllBytes(actual.getPath()));
+        assertEquals(png.length, actual.getSize());
+        assertEquals("image/png", actual.getMediaType());
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(png)), actual.getContentHash());
+        assertEquals(120, actual.getWidth());
+        assertEquals(80, actual.getHeight());
+        assertOnlyFiles("student_1.png");
+    }
+
+    @Test
+    void storeReplacesExistingFileTest() throws Exception {
+        Files.writeString(folder.resolve("student_1.png"), "old");
+        byte[] png = png(10, 10);
+
+        out.store(new ByteArrayInputStream(png), folder, "student_1");
+
+        assertArrayEquals(png, Files.readAllBytes(folder.resolve("student_1.png")));
+        assertOnlyFiles("student_1.png");
+    }
+
+    @Test
+    void storeTooLargeTest() throws Exception {
+        Files.writeString(folder.resolve("student_1.png"), "old");
+        byte[] data = new byte[128 * 1024];
+        System.arraycopy(png(10, 10), 0, data, 0, 8);
+
+        assertThrows(AvatarTooLargeException.class,
+                () -> out.store(new ByteArrayInputStream(data), folder, "student_1"));
+        // старый файл остаётся на месте, временный удалён
+        assertEquals("old", Files.readString(folder.resolve("student_1.png")));
+        assertOnlyFiles("student_1.png");
+    }
+
+    @Test
+    void storeIncorrectFileTest() throws Exception {
+        assertThrows(IncorrectAvatarException.class,
+                () -> out.store(new ByteArrayInputStream("not an image".getBytes()), folder, "student_1"));
+        assertThrows(IncorrectAvatarException.class,
+                () -> out.store(new ByteArrayInputStream(new byte[0]), folder, "student_1"));
+        assertThrows(IncorrectAvatarException.class,
+                () -> out.store(new ByteArrayInputStream(png(300, 10)), folder, "student_1"));
+        assertOnlyFiles();
+    }
+
+    private void assertOnlyFiles(String... names) throws Exception {
+        try (var files = Files.list(folder)) {
+            assertArrayEquals(names, files.map(file -> file.getFileName().toString()).sorted().toArray());
+        }
+    }
+
+    private static byte[] png(int width, int height) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", baos);
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,165 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.hogwarts.school.dto.AvatarPreviewStatsDto;
+import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.PreviewStatus;
+import ru.hogwarts.school.repository.AvatarRepository;
+import ru.hogwarts.school.repository.PendingPreview;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AvatarPreviewServiceTest {
+
+    private final AvatarRepository repositoryMock = mock(AvatarRepository.class);
+    private final PreviewBlobService blobServiceMock = mock(PreviewBlobService.class);
+    private final PlatformTransactionManager transactionManagerMock = mock(PlatformTransactionManager.class);
+    private final AvatarPreviewService out = new AvatarPreviewService(
+            repositoryMock, blobServiceMock, transactionManagerMock, 1, 10, 2, Duration.ofMillis(1), false);
+
+    @TempDir
+    private Path folder;
+
+    private Avatar avatar;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path file = folder.resolve("student_1.jpg");
+        Files.copy(Path.of("./src/test/java/ru/hogwarts/school/test_files/test_file.jpg"), file);
+
+        avatar = new Avatar();
+        avatar.setId(1L);
+        avatar.setFilePath(file.toString());
+        avatar.setContentHash("content");
+        avatar.setPreviewStatus(PreviewStatus.PROCESSING);
+
+        when(blobServiceMock.put(any(byte[].class))).thenReturn("hash");
+        when(repositoryMock.updatePreview(anyLong(), any(), any(), any())).thenReturn(1);
+    }
+
+    @Test
+    void virtualThreadsTest() throws Exception {
+        AvatarPreviewService virtualOut = new AvatarPreviewService(
+                repositoryMock, blobServiceMock, transactionManagerMock, 1, 10, 2, Duration.ofMillis(1), true);
+        AtomicBoolean virtual = new AtomicBoolean();
+        when(repositoryMock.findById(1L)).thenAnswer(invocation -> {
+            virtual.set(Thread.currentThread().isVirtual());
+            return Optional.of(avatar);
+        });
+
+        virtualOut.submit(1L, "content");
+        virtualOut.shutdown();
+
+        assertTrue(virtual.get());
+        assertEquals(1, virtualOut.getStats().getCompleted());
+    }
+
+    @Test
+    void submitTest() throws Exception {
+        when(repositoryMock.findById(1L)).thenReturn(Optional.of(avatar));
+
+        out.submit(1L, "content");
+        out.shutdown();
+
+        verify(blobServiceMock, times(1)).put(argThat(data -> data != null && data.length > 0));
+        verify(repositoryMock, times(1)).updatePreview(1L, "content", "hash", PreviewStatus.READY);
+        verify(transactionManagerMock, times(1)).commit(any());
+        AvatarPreviewStatsDto stats = out.getStats();
+        assertEquals(1, stats.getCompleted());
+        assertEquals(0, stats.getQueued());
+        assertTrue(stats.getMaxProcessingMillis() > 0);
+    }
+
+    @Test
+    void retryTest() throws Exception {
+        when(repositoryMock.findById(1L))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenReturn(Optional.of(avatar));
+
+        out.submit(1L, "content");
+        out.shutdown();
+
+        verify(repositoryMock, times(1)).updatePreview(1L, "content", "hash", PreviewStatus.READY);
+        assertEquals(1, out.getStats().getRetries());
+    }
+
+    @Test
+    void failedAfterRetriesTest() throws Exception {
+        when(repositoryMock.findById(1L)).thenThrow(new QueryTimeoutException("timeout"));
+
+        out.submit(1L, "content");
+        out.shutdown();
+
+        verify(repositoryMock, times(2)).findById(1L);
+        verify(repositoryMock, times(1)).updatePreview(1L, "content", null, PreviewStatus.FAILED);
+        assertEquals(1, out.getStats().getFailed());
+    }
+
+    @Test
+    void notAnImageTest() throws Exception {
+        Path textFile = folder.resolve("student_2.jpg");
+        Files.writeString(textFile, "not an image");
+        avatar.setFilePath(textFile.toString());
+        when(repositoryMock.findById(1L)).thenReturn(Optional.of(avatar));
+
+        out.submit(1L, "content");
+        out.shutdown();
+
+        // повторять бесполезно: файл сразу помечается FAILED
+        verify(repositoryMock, times(1)).findById(1L);
+        verify(repositoryMock, times(1)).updatePreview(1L, "content", null, PreviewStatus.FAILED);
+    }
+
+    @Test
+    void resumePendingTest() throws Exception {
+        PendingPreview pending = mock(PendingPreview.class);
+        when(pending.getId()).thenReturn(1L);
+        when(pending.getContentHash()).thenReturn("content");
+        when(repositoryMock.findPendingPreviews(PreviewStatus.PROCESSING)).thenReturn(List.of(pending));
+        when(repositoryMock.findById(1L)).thenReturn(Optional.of(avatar));
+
+        out.resumePending();
+        out.shutdown();
+
+        verify(repositoryMock, times(1)).updatePreview(1L, "content", "hash", PreviewStatus.READY);
+    }
+
+    @Test
+    void replacedBeforeProcessingTest() throws Exception {
+        when(repositoryMock.findById(1L)).thenReturn(Optional.of(avatar));
+
+        // задача осталась от прошлой загрузки: файл аватарки уже другой
+        out.submit(1L, "old-content");
+        out.shutdown();
+
+        verify(blobServiceMock, never()).put(any(byte[].class));
+        verify(repositoryMock, never()).updatePreview(anyLong(), any(), any(), any());
+        assertEquals(0, out.getStats().getCompleted());
+    }
+
+    @Test
+    void replacedWhileProcessingTest() throws Exception {
+        when(repositoryMock.findById(1L)).thenReturn(Optional.of(avatar));
+        when(repositoryMock.updatePreview(1L, "content", "hash", PreviewStatus.READY)).thenReturn(0);
+
+        out.submit(1L, "content");
+        out.shutdown();
+
+        // аватарку перезалили, пока строилось превью: оно не записывается, а сохранённый блоб освобождается
+        verify(blobServiceMock, times(1)).release("hash");
+        assertEquals(0, out.getStats().getCompleted());
+    }
+}
@@ -0,0 +1,85 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import ru.hogwarts.school.cache.RenditionCache;
+import ru.hogwarts.school.dto.AvatarDto;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvatarRenditionServiceTest {
+
+    @TempDir
+    private Path folder;
+
+    private RenditionCache cache;
+    private AvatarRenditionService out;
+    private AvatarDto avatar;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        cache = new RenditionCache(DataSize.ofMegabytes(1));
+        out = new AvatarRenditionService(cache, List.of(100, 32, 64), folder.resolve("renditions"), 0.8f);
+
+        Path file = folder.resolve("student_1.jpg");
+        Files.copy(Path.of("./src/test/java/ru/hogwarts/school/test_files/test_file.jpg"), file);
+        avatar = new AvatarDto();
+        avatar.setId(1L);
+        avatar.setFilePath(file.toString());
+        avatar.setFileSize(Files.size(file));
+        avatar.setMediaType("image/jpeg");
+        avatar.setContentHash("hash");
+    }
+
+    @Test
+    void keyTest() {
+        // ширина округляется вверх до ближайшей настроенной, больше наибольшей не бывает
+        assertEquals("hash_32", out.key(avatar, 1));
+        assertEquals("hash_64", out.key(avatar, 33));
+        assertEquals("hash_100", out.key(avatar, 100));
+        assertEquals("hash_100", out.key(avatar, 1000));
+        assertEquals("image/jpeg", out.mediaType(avatar));
+    }
+
+    @Test
+    void getTest() throws Exception {
+        byte[] actual = out.get(avatar, 50);
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(actual));
+        assertEquals(64, image.getWidth());
+        assertTrue(Files.exists(folder.resolve("renditions/hash_64.jpg")));
+        assertSame(actual, out.get(avatar, 64));
+        assertEquals(1, out.getCacheStats().getHits());
+    }
+
+    @Test
+    void getFromDiskTest() throws Exception {
+        byte[] generated = out.get(avatar, 32);
+        cache.remove("hash_32");
+        // исходник больше не нужен: рендишен читается с диска
+        Files.delete(Path.of(avatar.getFilePath()));
+
+        assertArrayEquals(generated, out.get(avatar, 32));
+    }
+
+    @Test
+    void evictTest() throws Exception {
+        out.get(avatar, 32);
+        out.get(avatar, 100);
+
+        out.evict(avatar);
+
+        assertNull(cache.get("hash_32"));
+        assertFalse(Files.exists(folder.resolve("renditions/hash_32.jpg")));
+        assertFalse(Files.exists(folder.resolve("renditions/hash_100.jpg")));
+    }
+}
@@ -6,21 +6,30 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 import ru.hogwarts.school.dto.AvatarDto;
+import ru.hogwarts.school.dto.KeysetPageDto;
 import ru.hogwarts.school.dto.StudentDto;
 import ru.hogwarts.school.exception.AvatarNotFoundException;
+import ru.hogwarts.school.exception.IncorrectAvatarException;
 import ru.hogwarts.school.exception.IncorrectIdException;
+import ru.hogwarts.school.exception.IncorrectPageParameterException;
 import ru.hogwarts.school.exception.ParameterIsNullException;
 import ru.hogwarts.school.model.Avatar;
+import ru.hogwarts.school.model.PreviewStatus;
 import ru.hogwarts.school.repository.AvatarRepository;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.lang.reflect.Field;
@@ -29,9 +38,13 @@ import java.nio.file.Path;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -44,6 +57,14 @@ class AvatarServiceTest {
     private AvatarRepository avatarRepositoryMock;
     @Mock
     private StudentService studentServiceMock;
+    @Mock
+    private AvatarPreviewService previewServiceMock;
+    @Mock
+    private PreviewBlobService blobServiceMock;
+    @Mock
+    private AvatarRenditionService renditionServiceMock;
+    @Spy
+    private AvatarFileStore fileStore = new AvatarFileStore(DataSize.ofMegabytes(1), 4096);
 
     private MultipartFile avatarFileMock;
 
@@ -76,7 +97,7 @@ class AvatarServiceTest {
 
         avatarDto = new AvatarDto();
         avatarDto.setId(1L);
-        avatarDto.setData(new byte[]{1, 2, 10});
+        avatarDto.setPreviewHash("old-hash");
         avatarDto.setStudentDto(studentDto);
 
         avatar = AvatarDto.toEntity(avatarDto);
@@ -169,17 +190,51 @@ class AvatarServiceTest {
     void uploadTest() throws Exception {
         when(studentServiceMock.findById(anyLong())).thenReturn(studentDto);
         when(avatarRepositoryMock.findByStudentId(anyLong())).thenReturn(Optional.of(avatar));
+        when(avatarRepositoryMock.save(any(Avatar.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
-        out.upload(studentDto.getId(), avatarFileMock);
+        AvatarDto actual = out.upload(studentDto.getId(), avatarFileMock);
 
-        // Проверка, что файл был создан
-        Path filePath = Path.of(testFolderPath, "student_" + studentDto.getId() + ".png");
+        // Проверка, что файл был создан: расширение и тип берутся из содержимого, а не из имени файла
+        Path filePath = Path.of(testFolderPath, "student_" + studentDto.getId() + ".jpg");
         assertTrue(Files.exists(filePath));
-
+        assertEquals("image/jpeg", actual.getMediaType());
+        assertEquals(Files.size(filePath), actual.getFileSize());
+        assertNotNull(actual.getContentHash());
+        assertTrue(actual.getWidth() > 0 && actual.getHeight() > 0);
+
+        // превью не строится в потоке запроса, а уходит в очередь
+        assertEquals(PreviewStatus.PROCESSING, actual.getPreviewStatus());
+        assertNull(actual.getPreviewHash());
+        verify(previewServiceMock, times(1)).submit(avatar.getId(), actual.getContentHash());
+        // старое превью удаляется, если на него больше никто не ссылается
+        verify(blobServiceMock, times(1)).release("old-hash");
+        verify(renditionServiceMock, times(1)).evict(any(AvatarDto.class));
         verify(studentServiceMock, times(1)).findById(anyLong());
         verify(avatarRepositoryMock, times(1)).findByStudentId(anyLong());
     }
 
+    @Test
+    void uploadSameFileTest() throws Exception {
+        when(studentServiceMock.findById(anyLong())).thenReturn(studentDto);
+        when(avatarRepositoryMock.findByStudentId(anyLong())).thenReturn(Optional.of(avatar));
+        when(avatarRepositoryMock.save(any(Avatar.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        AvatarDto first = out.upload(studentDto.getId(), avatarFileMock);
+
+        Avatar stored = AvatarDto.toEntity(first);
+        stored.setPreviewStatus(PreviewStatus.READY);
+        stored.setPreviewHash("preview-hash");
+        when(avatarRepositoryMock.findByStudentId(anyLong())).thenReturn(Optional.of(stored));
+
+        AvatarDto actual = out.upload(studentDto.getId(), new MockMultipartFile(
+                "avatar", "avatar.jpg", "image/jpeg", Files.readAllBytes(Path.of(first.getFilePath()))));
+
+        // файл не изменился: превью не перестраивается
+        assertEquals(PreviewStatus.READY, actual.getPreviewStatus());
+        assertEquals("preview-hash", actual.getPreviewHash());
+        verify(avatarRepositoryMock, times(1)).save(any(Avatar.class));
+        verify(previewServiceMock, times(1)).submit(anyLong(), anyString());
+    }
+
     @Test
     void uploadToIncorrectStudentIdTest() {
         assertThrows(IncorrectIdException.class, () -> out.upload(0L, avatarFileMock));
@@ -205,6 +260,72 @@ class AvatarServiceTest {
 
         assertNotNull(actual);
         assertEquals(avatar.getId(), actual.iterator().next().getId());
-        assertEquals(avatar.getData(), actual.iterator().next().getData());
+        assertEquals(avatar.getPreviewHash(), actual.iterator().next().getPreviewHash());
+    }
+
+    @Test
+    void findPreviewTest() {
+        byte[] preview = {1, 2, 10};
+        when(blobServiceMock.get("hash")).thenReturn(Optional.of(preview));
+        when(blobServiceMock.get("missing")).thenReturn(Optional.empty());
+
+        assertArrayEquals(preview, out.findPreview("hash"));
+        assertThrows(AvatarNotFoundException.class, () -> out.findPreview("missing"));
+        assertThrows(ParameterIsNullException.class, () -> out.findPreview(null));
+    }
+
+    @Test
+    void findRenditionTest() throws Exception {
+        byte[] rendition = {1, 2, 10};
+        when(renditionServiceMock.get(avatarDto, 64)).thenReturn(rendition);
+
+        assertArrayEquals(rendition, out.findRendition(avatarDto, 64));
+        assertThrows(IncorrectAvatarException.class, () -> out.findRendition(avatarDto, 0));
+    }
+
+    @Test
+    void findAllByIdTest() {
+        when(avatarRepositoryMock.findByIdInOrderByIdAsc(List.of(1L))).thenReturn(List.of(avatar));
+
+        assertEquals(List.of(avatarDto), out.findAllById(List.of(1L)));
+        assertThrows(IncorrectPageParameterException.class, () -> out.findAllById(List.of()));
+        assertThrows(IncorrectIdException.class, () -> out.findAllById(List.of(0L)));
+    }
+
+    @Test
+    void writePreviewsTest() throws Exception {
+        avatarDto.setMediaType("image/jpeg");
+        AvatarDto withoutPreview = new AvatarDto();
+        withoutPreview.setId(2L);
+        byte[] preview = {1, 2, 10};
+        when(blobServiceMock.get("old-hash")).thenReturn(Optional.of(preview));
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        out.writePreviews(List.of(avatarDto, withoutPreview), baos);
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(baos.toByteArray()))) {
+            ZipEntry entry = zip.getNextEntry();
+            assertNotNull(entry);
+            assertEquals("avatar_1.jpg", entry.getName());
+            assertArrayEquals(preview, zip.readAllBytes());
+            // аватарка без превью в архив не попадает
+            assertNull(zip.getNextEntry());
+        }
+    }
+
+    @Test
+    void findPageTest() {
+        Avatar nextAvatar = AvatarDto.toEntity(avatarDto);
+        nextAvatar.setId(2L);
+
+        when(avatarRepositoryMock.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2))).thenReturn(List.of(avatar, nextAvatar));
+
+        KeysetPageDto<AvatarDto> actual = out.findPage(0L, 1);
+
+        assertEquals(1, actual.getContent().size());
+        assertEquals(avatar.getId(), actual.getContent().get(0).getId());
+        assertEquals(avatar.getId(), KeysetPageDto.decodeToken(actual.getNextToken()));
+
+        assertThrows(IncorrectPageParameterException.class, () -> out.findPage(0L, 0));
     }
-}
\ No newline at end of file
+}
@@ -5,16 +5,26 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import ru.hogwarts.school.cache.FacultyCache;
+import ru.hogwarts.school.cache.FacultySelectionStrategy;
+import ru.hogwarts.school.cache.StudentStatsCache;
 import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.dto.KeysetPageDto;
 import ru.hogwarts.school.dto.StudentDto;
 import ru.hogwarts.school.exception.FacultyNotFoundException;
 import ru.hogwarts.school.exception.IncorrectIdException;
+import ru.hogwarts.school.exception.IncorrectPageParameterException;
 import ru.hogwarts.school.exception.ParameterIsNullException;
 import ru.hogwarts.school.model.Faculty;
 import ru.hogwarts.school.model.Student;
 import ru.hogwarts.school.repository.FacultyRepository;
+import ru.hogwarts.school.repository.FacultyStudentCount;
+import ru.hogwarts.school.repository.StudentRepository;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -31,6 +41,12 @@ class FacultyServiceTest {
 
     @Mock
     private FacultyRepository facultyRepositoryMock;
+    @Mock
+    private StudentRepository studentRepositoryMock;
+    @Spy
+    private FacultyCache facultyCache = new FacultyCache(256, Duration.ofMinutes(5), FacultySelectionStrategy.UNIFORM);
+    @Mock
+    private StudentStatsCache studentStatsMock;
 
     private StudentDto studentDto;
     private FacultyDto facultyDto;
@@ -77,6 +93,30 @@ class FacultyServiceTest {
         assertThrows(IncorrectIdException.class, () -> out.find(-1));
     }
 
+    @Test
+    void findCachedTest() {
+        when(facultyRepositoryMock.findById(anyLong())).thenReturn(Optional.ofNullable(faculty));
+        when(facultyRepositoryMock.findByNameIgnoreCase(anyString())).thenReturn(Optional.ofNullable(faculty));
+
+        out.find(1L);
+        out.find(1L);
+        out.findByName("FacultyName");
+        out.findByName("facultyname");
+
+        verify(facultyRepositoryMock, times(1)).findById(anyLong());
+        verify(facultyRepositoryMock, times(1)).findByNameIgnoreCase(anyString());
+        assertEquals(2, out.getCacheStats().getHits());
+        assertEquals(2, out.getCacheStats().getMisses());
+
+        // изменение факультета сбрасывает кэш
+        when(facultyRepositoryMock.save(any(Faculty.class))).thenReturn(faculty);
+        out.edit(facultyDto);
+        out.find(1L);
+
+        verify(facultyRepositoryMock, times(2)).findById(anyLong());
+        verify(facultyCache, times(1)).invalidate();
+    }
+
     @Test
     void editTest() {
         when(facultyRepositoryMock.save(any(Faculty.class))).thenReturn(faculty);
@@ -95,11 +135,16 @@ class FacultyServiceTest {
 
     @Test
     void deleteTest() {
-        when(facultyRepositoryMock.findById(anyLong())).thenReturn(Optional.ofNullable(faculty));
+        when(facultyRepositoryMock.deleteWithStudents(1L)).thenReturn(1);
 
         out.delete(1L);
 
-        verify(facultyRepositoryMock, times(1)).deleteById(anyLong());
+        verify(facultyRepositoryMock, never()).findById(anyLong());
+        verify(studentStatsMock, times(1)).invalidate();
+
+        when(facultyRepositoryMock.deleteWithStudents(2L)).thenReturn(0);
+        assertThrows(FacultyNotFoundException.class, () -> out.delete(2L));
+        verify(studentStatsMock, times(1)).invalidate();
 
         assertThrows(IncorrectIdException.class, () -> out.delete(0));
         assertThrows(IncorrectIdException.class, () -> out.delete(-1));
@@ -116,6 +161,20 @@ class FacultyServiceTest {
         verify(facultyRepositoryMock, times(1)).findAll();
     }
 
+    @Test
+    void getPageTest() {
+        when(facultyRepositoryMock.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(11))).thenReturn(List.of(faculty));
+
+        KeysetPageDto<FacultyDto> result = out.getPage(0L, 10);
+
+        assertEquals(1, result.getContent().size());
+        assertEquals(facultyDto.getName(), result.getContent().get(0).getName());
+        assertNull(result.getNextToken());
+
+        assertThrows(IncorrectPageParameterException.class, () -> out.getPage(0L, 0));
+        assertThrows(IncorrectPageParameterException.class, () -> out.getPage(-1L, 10));
+    }
+
     @Test
     void getAllByColorTest() {
         when(facultyRepositoryMock.findAllByColorIgnoreCase(anyString())).thenReturn(List.of(faculty));
@@ -158,30 +217,106 @@ class FacultyServiceTest {
         assertThrows(ParameterIsNullException.class, () -> out.findByName(null));
     }
 
+    @Test
+    void findByNameDoesNotTouchStudentsTest() {
+        // имитируем ленивую коллекцию вне сессии: любое обращение к студентам - ошибка
+        Faculty lazyFaculty = spy(faculty);
+        lenient().doThrow(IllegalStateException.class).when(lazyFaculty).getStudents();
+        when(facultyRepositoryMock.findByNameIgnoreCase(anyString())).thenReturn(Optional.of(lazyFaculty));
+
+        FacultyDto result = out.findByName("FacultyName");
+
+        assertEquals(facultyDto.getName(), result.getName());
+        assertTrue(result.getStudents().isEmpty());
+        verify(lazyFaculty, never()).getStudents();
+    }
+
     @Test
     void findStudentsByFacultyNameTest() {
-        when(facultyRepositoryMock.findByNameIgnoreCase(anyString())).thenReturn(Optional.ofNullable(faculty));
+        when(studentRepositoryMock.findDtoByFacultyName(anyString())).thenReturn(List.of(studentDto));
 
         Collection<StudentDto> result = out.findStudentsByFacultyName("FacultyName");
 
         assertNotNull(result);
-        System.out.println(result.size());
-        verify(facultyRepositoryMock, times(1)).findByNameIgnoreCase(anyString());
+        assertIterableEquals(List.of(studentDto), result);
+        verify(studentRepositoryMock, times(1)).findDtoByFacultyName(anyString());
+        verify(facultyRepositoryMock, never()).findByNameIgnoreCase(anyString());
+
+        // пустой факультет
+        when(studentRepositoryMock.findDtoByFacultyName(anyString())).thenReturn(List.of());
+        when(facultyRepositoryMock.findByNameIgnoreCase(anyString())).thenReturn(Optional.of(faculty));
+        assertTrue(out.findStudentsByFacultyName("FacultyName").isEmpty());
+
+        when(facultyRepositoryMock.findByNameIgnoreCase(anyString())).thenReturn(Optional.empty());
+        assertThrows(FacultyNotFoundException.class, () -> out.findStudentsByFacultyName("OtherFaculty"));
 
         assertThrows(ParameterIsNullException.class, () -> out.findStudentsByFacultyName(null));
     }
 
+    @Test
+    void findStudentsByFacultyNamePageTest() {
+        StudentDto secondDto = new StudentDto(2L, "SecondName", 21);
+        when(studentRepositoryMock.findDtoByFacultyNameAfter("FacultyName", 0L, Limit.of(2)))
+                .thenReturn(List.of(studentDto, secondDto));
+
+        KeysetPageDto<StudentDto> result = out.findStudentsByFacultyNamePage("FacultyName", 0L, 1);
+
+        assertIterableEquals(List.of(studentDto), result.getContent());
+        assertNotNull(result.getNextToken());
+        verify(facultyRepositoryMock, never()).findByNameIgnoreCase(anyString());
+
+        when(studentRepositoryMock.findDtoByFacultyNameAfter(anyString(), anyLong(), any(Limit.class))).thenReturn(List.of());
+        when(facultyRepositoryMock.findByNameIgnoreCase(anyString())).thenReturn(Optional.empty());
+        assertThrows(FacultyNotFoundException.class, () -> out.findStudentsByFacultyNamePage("OtherFaculty", 0L, 10));
+
+        assertThrows(IncorrectPageParameterException.class, () -> out.findStudentsByFacultyNamePage("FacultyName", 0L, 0));
+        assertThrows(IncorrectPageParameterException.class, () -> out.findStudentsByFacultyNamePage("FacultyName", -1L, 10));
+        assertThrows(ParameterIsNullException.class, () -> out.findStudentsByFacultyNamePage(null, 0L, 10));
+    }
+
     @Test
     void findRandomTest() {
-        when(facultyRepositoryMock.findRandom()).thenReturn(Optional.ofNullable(faculty));
+        when(facultyRepositoryMock.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(257))).thenReturn(List.of(faculty));
 
         FacultyDto result = out.findRandom();
+        out.findRandom();
 
         assertNotNull(result);
         assertEquals(facultyDto.getName(), result.getName());
         assertEquals(facultyDto.getColor(), result.getColor());
         assertEquals(facultyDto.getStudents(), result.getStudents());
-        verify(facultyRepositoryMock, times(1)).findRandom();
+        // список факультетов загружается один раз, дальше выбор идёт из памяти
+        verify(facultyRepositoryMock, times(1)).findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class));
+        verify(facultyRepositoryMock, never()).findRandom();
+    }
+
+    @Test
+    void findRandomBalancedTest() {
+        FacultyService balancedOut = new FacultyService(
+                facultyRepositoryMock,
+                studentRepositoryMock,
+                new FacultyCache(256, Duration.ofMinutes(5), FacultySelectionStrategy.BALANCED),
+                studentStatsMock);
+        Faculty emptyFaculty = new Faculty(2L, "EmptyFaculty", "Color");
+        FacultyStudentCount count = mock(FacultyStudentCount.class);
+        when(count.getFacultyId()).thenReturn(faculty.getId());
+        when(count.getStudentCount()).thenReturn(5L);
+
+        when(facultyRepositoryMock.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class))).thenReturn(List.of(faculty, emptyFaculty));
+        when(facultyRepositoryMock.countStudentsByFaculty()).thenReturn(List.of(count));
+
+        // пока на пустом факультете меньше студентов, выбирается он
+        for (int i = 0; i < 5; i++) {
+            assertEquals(emptyFaculty.getId(), balancedOut.findRandom().getId());
+        }
+        verify(facultyRepositoryMock, times(1)).countStudentsByFaculty();
+    }
+
+    @Test
+    void findRandomWhenThereAreNoFacultyTest() {
+        when(facultyRepositoryMock.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class))).thenReturn(List.of());
+
+        assertThrows(FacultyNotFoundException.class, () -> out.findRandom());
     }
 
     @Test
@@ -191,17 +326,18 @@ class FacultyServiceTest {
         facultyWithLongestName.setName(faculty.getName() + "_EndOfLongName");
         facultyWithLongestName.setColor("test color");
 
-        when(facultyRepositoryMock.findAll()).thenReturn(List.of(facultyWithLongestName, faculty));
+        when(facultyRepositoryMock.findLongestName()).thenReturn(Optional.of(facultyWithLongestName.getName()));
 
         String expected = facultyWithLongestName.getName();
         String actual = out.getLongestName();
 
         assertEquals(expected, actual);
+        verify(facultyRepositoryMock, never()).findAll();
     }
 
     @Test
     void getLongestNameWhenThereAreNoFacultyTest() {
-        when(facultyRepositoryMock.findAll()).thenReturn(List.of());
+        when(facultyRepositoryMock.findLongestName()).thenReturn(Optional.empty());
 
         assertThrows(FacultyNotFoundException.class, () -> out.getLongestName());
     }
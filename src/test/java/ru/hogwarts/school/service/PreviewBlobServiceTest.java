@@ -0,0 +1,87 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.hogwarts.school.model.PreviewBlob;
+import ru.hogwarts.school.repository.PreviewBlobRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PreviewBlobServiceTest {
+
+    private static final byte[] DATA = "abc".getBytes(StandardCharsets.US_ASCII);
+    private static final String DATA_HASH = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+    @InjectMocks
+    private PreviewBlobService out;
+
+    @Mock
+    private PreviewBlobRepository repositoryMock;
+
+    @Test
+    void putTest() {
+        when(repositoryMock.lockShared(DATA_HASH)).thenReturn(Optional.empty());
+        when(repositoryMock.insertIfAbsent(DATA_HASH, DATA)).thenReturn(1);
+
+        assertEquals(DATA_HASH, out.put(DATA));
+        verify(repositoryMock, times(1)).insertIfAbsent(DATA_HASH, DATA);
+    }
+
+    @Test
+    void putExistingTest() {
+        when(repositoryMock.lockShared(DATA_HASH)).thenReturn(Optional.of(DATA_HASH));
+
+        assertEquals(DATA_HASH, out.put(DATA));
+        verify(repositoryMock, never()).insertIfAbsent(anyString(), any(byte[].class));
+    }
+
+    @Test
+    void putInsertedConcurrentlyTest() {
+        // INSERT ничего не вставил: строку вставила другая транзакция, её нужно заблокировать
+        when(repositoryMock.lockShared(DATA_HASH)).thenReturn(Optional.empty(), Optional.of(DATA_HASH));
+        when(repositoryMock.insertIfAbsent(DATA_HASH, DATA)).thenReturn(0);
+
+        assertEquals(DATA_HASH, out.put(DATA));
+        verify(repositoryMock, times(2)).lockShared(DATA_HASH);
+        verify(repositoryMock, times(1)).insertIfAbsent(DATA_HASH, DATA);
+    }
+
+    @Test
+    void getTest() {
+        PreviewBlob blob = new PreviewBlob();
+        blob.setHash(DATA_HASH);
+        blob.setData(DATA);
+        when(repositoryMock.findById(DATA_HASH)).thenReturn(Optional.of(blob));
+
+        assertArrayEquals(DATA, out.get(DATA_HASH).orElseThrow());
+    }
+
+    @Test
+    void releaseTest() {
+        when(repositoryMock.lockForDelete(DATA_HASH)).thenReturn(Optional.of(DATA_HASH));
+
+        out.release(DATA_HASH);
+        out.release(null);
+
+        verify(repositoryMock, times(1)).deleteIfUnreferenced(DATA_HASH);
+    }
+
+    @Test
+    void releaseDeletedTest() {
+        when(repositoryMock.lockForDelete(DATA_HASH)).thenReturn(Optional.empty());
+
+        out.release(DATA_HASH);
+
+        verify(repositoryMock, never()).deleteIfUnreferenced(anyString());
+    }
+}
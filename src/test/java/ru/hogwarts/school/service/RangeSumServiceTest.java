@@ -0,0 +1,58 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.exception.ComputationTimeoutException;
+import ru.hogwarts.school.exception.ParameterIsNullException;
+
+import java.time.Duration;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RangeSumServiceTest {
+
+    private final RangeSumService out = new RangeSumService(2, Duration.ofSeconds(5));
+
+    @AfterEach
+    void tearDown() {
+        out.shutdown();
+    }
+
+    @Test
+    void formulaTest() {
+        // то, что раньше считал get_some_value, без переполнения int
+        assertEquals(2_305_843_008_139_952_128L, out.sum(1, Integer.MAX_VALUE, SumStrategy.FORMULA));
+        assertEquals(-1L << 31, out.sum(Integer.MIN_VALUE, Integer.MAX_VALUE, SumStrategy.FORMULA));
+        assertEquals(-2_305_843_010_287_435_776L, out.sum(Integer.MIN_VALUE, -1, SumStrategy.FORMULA));
+        assertEquals(7, out.sum(7, 7, SumStrategy.FORMULA));
+        assertEquals(0, out.sum(10, 1, SumStrategy.FORMULA));
+    }
+
+    @Test
+    void forkJoinMatchesFormulaTest() {
+        int[][] ranges = {{1, 1000}, {-500_000, 1_234_567}, {3, 3}, {-10, -1}, {0, (int) RangeSumService.THRESHOLD * 5 + 1}};
+        for (int[] range : ranges) {
+            long expected = LongStream.rangeClosed(range[0], range[1]).sum();
+            assertEquals(expected, out.sum(range[0], range[1], SumStrategy.FORMULA));
+            assertEquals(expected, out.sum(range[0], range[1], SumStrategy.FORK_JOIN));
+        }
+        assertEquals(0, out.sum(1, 0, SumStrategy.FORK_JOIN));
+    }
+
+    @Test
+    void timeoutTest() {
+        RangeSumService slow = new RangeSumService(1, Duration.ofMillis(1));
+        try {
+            assertThrows(ComputationTimeoutException.class,
+                    () -> slow.sum(Integer.MIN_VALUE, Integer.MAX_VALUE, SumStrategy.FORK_JOIN));
+        } finally {
+            slow.shutdown();
+        }
+    }
+
+    @Test
+    void nullStrategyTest() {
+        assertThrows(ParameterIsNullException.class, () -> out.sum(1, 2, null));
+    }
+}
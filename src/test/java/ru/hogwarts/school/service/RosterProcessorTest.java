@@ -0,0 +1,108 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.hogwarts.school.exception.RosterBusyException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RosterProcessorTest {
+
+    private final RosterProcessor out = new RosterProcessor(2, 1, Duration.ofMillis(500), false);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() throws Exception {
+        release.countDown();
+        out.shutdown();
+    }
+
+    @Test
+    void virtualThreadsTest() throws Exception {
+        RosterProcessor virtualOut = new RosterProcessor(2, 1, Duration.ofMillis(500), true);
+
+        List<Boolean> result = virtualOut.process(List.of(1, 2, 3), 2, true,
+                chunk -> List.of(Thread.currentThread().isVirtual()));
+        virtualOut.shutdown();
+
+        assertEquals(List.of(true, true), result);
+    }
+
+    @Test
+    void orderedTest() {
+        List<Integer> result = out.process(List.of(1, 2, 3, 4, 5), 2, true, chunk -> {
+            // первая часть заканчивается последней, но в результате всё равно идёт первой
+            if (chunk.get(0) == 1) {
+                sleep(50);
+            }
+            return chunk.stream().map(i -> i * 10).toList();
+        });
+
+        assertEquals(List.of(10, 20, 30, 40, 50), result);
+        assertEquals(3, out.getStats().getCompleted());
+    }
+
+    @Test
+    void unorderedTest() {
+        List<Integer> result = out.process(List.of(1, 2, 3, 4), 2, false, chunk -> {
+            if (chunk.get(0) == 1) {
+                sleep(100);
+            }
+            return chunk;
+        });
+
+        assertEquals(List.of(3, 4, 1, 2), result);
+    }
+
+    @Test
+    void rejectedTest() {
+        // два потока и место в очереди на одну часть: четвёртая часть не помещается
+        assertThrows(RosterBusyException.class,
+                () -> out.process(List.of(1, 2, 3, 4), 1, true, chunk -> {
+                    await(release);
+                    return chunk;
+                }));
+        assertEquals(1, out.getStats().getRejected());
+    }
+
+    @Test
+    void timeoutTest() {
+        assertThrows(RosterBusyException.class,
+                () -> out.process(List.of(1, 2), 1, false, chunk -> {
+                    await(release);
+                    return chunk;
+                }));
+        assertEquals(1, out.getStats().getTimedOut());
+    }
+
+    @Test
+    void taskExceptionTest() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> out.process(List.of(1, 2), 1, true, chunk -> {
+                    throw new IllegalArgumentException("bad chunk " + chunk);
+                }));
+        assertEquals("bad chunk [1]", e.getMessage());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
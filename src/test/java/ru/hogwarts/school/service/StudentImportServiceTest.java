@@ -0,0 +1,211 @@
+package ru.hogwarts.school.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.hogwarts.school.cache.StudentStatsCache;
+import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.dto.StudentImportDto;
+import ru.hogwarts.school.dto.StudentImportErrorDto;
+import ru.hogwarts.school.dto.StudentImportResultDto;
+import ru.hogwarts.school.exception.ParameterIsNullException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static ru.hogwarts.school.constants.Constants.FACULTY_DTO;
+
+@ExtendWith(MockitoExtension.class)
+class StudentImportServiceTest {
+
+    @InjectMocks
+    private StudentImportService out;
+
+    @Mock
+    private JdbcTemplate jdbcTemplateMock;
+    @Mock
+    private PlatformTransactionManager transactionManagerMock;
+    @Mock
+    private FacultyService facultyServiceMock;
+    @Mock
+    private StudentStatsCache statsMock;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Field batchSizeField = StudentImportService.class.getDeclaredField("batchSize");
+        batchSizeField.setAccessible(true);
+        batchSizeField.set(out, 2);
+
+        lenient().when(facultyServiceMock.getAll()).thenReturn(List.of(FACULTY_DTO));
+        // сиквенс с шагом 50, начиная со 100: по значению на каждую строку пачки
+        lenient().when(jdbcTemplateMock.queryForList(anyString(), eq(Long.class), any(Object[].class)))
+                .thenAnswer(invocation -> LongStream.range(0, invocation.<Integer>getArgument(2))
+                        .mapToObj(i -> 100 + i * 50)
+                        .toList());
+    }
+
+    @Test
+    void importStudentsTest() {
+        List<StudentImportDto> students = List.of(
+                new StudentImportDto("Sam", 20, FACULTY_DTO.getName()),
+                new StudentImportDto("Aaron", 22, FACULTY_DTO.getName().toUpperCase()),
+                new StudentImportDto("Dik", 0, FACULTY_DTO.getName()),
+                new StudentImportDto("Albert", 55, "Unknown faculty"),
+                new StudentImportDto("Gennadiy", 66, FACULTY_DTO.getName())
+        );
+
+        StudentImportResultDto result = out.importStudents(students);
+
+        assertEquals(3, result.getImported());
+        assertEquals(2, result.getFailed());
+        assertEquals(3, result.getErrors().get(0).getRow());
+        assertEquals(4, result.getErrors().get(1).getRow());
+        // факультеты загружаются один раз, вставка идёт пачками по batchSize
+        verify(facultyServiceMock, times(1)).getAll();
+        verify(jdbcTemplateMock, times(2)).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        verify(jdbcTemplateMock, never()).update(anyString(), any(Object[].class));
+        verify(statsMock, times(3)).onCreated(anyInt(), eq(FACULTY_DTO.getId()));
+
+        assertThrows(ParameterIsNullException.class, () -> out.importStudents(null));
+    }
+
+    @Test
+    void importStudentsFailedBatchTest() {
+        when(jdbcTemplateMock.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataIntegrityViolationException("batch failed"));
+        when(jdbcTemplateMock.update(anyString(), any(Object[].class)))
+                .thenReturn(1)
+                .thenThrow(new DataIntegrityViolationException("row failed"));
+
+        StudentImportResultDto result = out.importStudents(List.of(
+                new StudentImportDto("Sam", 20, FACULTY_DTO.getName()),
+                new StudentImportDto("Aaron", 22, FACULTY_DTO.getName())
+        ));
+
+        // упавшая пачка не откатывает весь импорт: строки повторяются по одной
+        assertEquals(1, result.getImported());
+        assertEquals(List.of(new StudentImportErrorDto(2, "row failed")), result.getErrors());
+        // повтор по одной строке использует id, выданные пачке
+        verify(jdbcTemplateMock, times(1)).update(anyString(), eq(100L), eq("Sam"), eq(20), eq(FACULTY_DTO.getId()));
+        verify(jdbcTemplateMock, times(1)).update(anyString(), eq(150L), eq("Aaron"), eq(22), eq(FACULTY_DTO.getId()));
+        verify(statsMock, times(1)).onCreated(20, FACULTY_DTO.getId());
+    }
+
+    @Test
+    void importCsvTest() throws Exception {
+        String csv = """
+                name,age,facultyName
+                Sam,20,FacultyName
+                "Aaron", 22 ,"FacultyName"
+                Dik,forty,FacultyName
+                Albert,55
+                """;
+
+        StudentImportResultDto result = out.importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(2, result.getImported());
+        Collection<Long> failedRows = result.getErrors().stream().map(StudentImportErrorDto::getRow).toList();
+        assertIterableEquals(List.of(3L, 4L), failedRows);
+        verify(jdbcTemplateMock, times(1)).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+
+        assertThrows(ParameterIsNullException.class, () -> out.importCsv(null));
+    }
+
+    @Test
+    void importCsvWithNamelessFacultyTest() throws Exception {
+        when(facultyServiceMock.getAll()).thenReturn(List.of(new FacultyDto(2L, null, "Color", null), FACULTY_DTO));
+        String csv = """
+                Sam,20,FacultyName
+                Aaron,22,
+                """;
+
+        StudentImportResultDto result = out.importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        // факультет без имени пропускается и не роняет импорт
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getFailed());
+        verify(statsMock, times(1)).onCreated(20, FACULTY_DTO.getId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importCsvQuotedFieldsTest() throws Exception {
+        String csv = """
+                "Potter, Harry",11,FacultyName
+                "Ronald ""Ron"" Weasley", 12 ,"FacultyName"
+                "Hermione
+                Granger",11,FacultyName
+                "Luna,12,FacultyName
+                """;
+        // строки пачки передаются в PreparedStatement во время вызова: после него пачка очищается
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(jdbcTemplateMock.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    ParameterizedPreparedStatementSetter<Integer> setter = invocation.getArgument(3);
+                    for (Integer row : (Collection<Integer>) invocation.getArgument(1)) {
+                        setter.setValues(ps, row);
+                    }
+                    return new int[0][];
+                });
+
+        StudentImportResultDto result = out.importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(3, result.getImported());
+        assertEquals(List.of(new StudentImportErrorDto(4, "Unterminated quoted field")), result.getErrors());
+        // запятая, удвоенная кавычка и перевод строки внутри кавычек - часть имени
+        verify(ps).setString(2, "Potter, Harry");
+        verify(ps).setString(2, "Ronald \"Ron\" Weasley");
+        verify(ps).setString(2, "Hermione\nGranger");
+        verify(ps).setInt(3, 12);
+    }
+
+    @Test
+    void allocateIdPerRowTest() throws Exception {
+        Field batchSizeField = StudentImportService.class.getDeclaredField("batchSize");
+        batchSizeField.setAccessible(true);
+        batchSizeField.set(out, 120);
+        when(jdbcTemplateMock.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataIntegrityViolationException("batch failed"));
+        List<StudentImportDto> students = new ArrayList<>();
+        for (int i = 0; i < 101; i++) {
+            students.add(new StudentImportDto("Student" + i, 20, FACULTY_DTO.getName()));
+        }
+
+        out.importStudents(students);
+
+        // на 101 строку - 101 nextval одним запросом, id строки - само значение сиквенса
+        verify(jdbcTemplateMock, times(1)).queryForList(anyString(), eq(Long.class), eq(101));
+        verify(jdbcTemplateMock, times(1)).update(anyString(), eq(100L), eq("Student0"), anyInt(), anyLong());
+        verify(jdbcTemplateMock, times(1)).update(anyString(), eq(150L), eq("Student1"), anyInt(), anyLong());
+        verify(jdbcTemplateMock, times(1)).update(anyString(), eq(5100L), eq("Student100"), anyInt(), anyLong());
+    }
+
+    @Test
+    void idOptimizerIsPooledLoTest() throws Exception {
+        Properties properties = new Properties();
+        try (InputStream is = getClass().getResourceAsStream("/application.properties")) {
+            properties.load(is);
+        }
+
+        // смена оптимизатора на живой базе по-другому читает last_value сиквенсов и выдаёт уже занятые id
+        assertEquals("pooled-lo", properties.getProperty("spring.jpa.properties.hibernate.id.optimizer.pooled.preferred"));
+    }
+}
@@ -4,19 +4,37 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import ru.hogwarts.school.cache.StudentStatsCache;
+import ru.hogwarts.school.dto.BulkResultDto;
 import ru.hogwarts.school.dto.FacultyDto;
+import ru.hogwarts.school.dto.KeysetPageDto;
+import ru.hogwarts.school.dto.StudentAnalyticsDto;
 import ru.hogwarts.school.dto.StudentDto;
+import ru.hogwarts.school.dto.StudentStatsDto;
+import ru.hogwarts.school.exception.FacultyNotFoundException;
 import ru.hogwarts.school.exception.IncorrectAgeException;
 import ru.hogwarts.school.exception.IncorrectIdException;
+import ru.hogwarts.school.exception.IncorrectPageParameterException;
 import ru.hogwarts.school.exception.ParameterIsNullException;
+import ru.hogwarts.school.exception.StaleVersionException;
 import ru.hogwarts.school.exception.StudentNotFoundException;
 import ru.hogwarts.school.model.Student;
+import ru.hogwarts.school.repository.StudentAgeGroup;
+import ru.hogwarts.school.repository.StudentDeletion;
 import ru.hogwarts.school.repository.StudentRepository;
+import ru.hogwarts.school.repository.StudentUpdate;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -32,6 +50,19 @@ class StudentServiceTest {
     private StudentRepository studentRepositoryMock;
     @Mock
     private FacultyService facultyServiceMock;
+    @Mock
+    private StudentStatsCache statsMock;
+    @Spy
+    private RosterProcessor roster = new RosterProcessor(2, 10, Duration.ofSeconds(5), false);
+
+    private static final List<Student> SIX_STUDENTS = List.of(
+            STUDENT_1_SAM,
+            STUDENT_2_AARON,
+            STUDENT_3_AARON,
+            STUDENT_4_DIK,
+            STUDENT_5_ALBERT,
+            STUDENT_6_GENNADIY
+    );
 
     @Test
     void createTest() {
@@ -44,6 +75,8 @@ class StudentServiceTest {
         assertEquals(STUDENT_DTO_1_SAM.getName(), result.getName());
         assertEquals(STUDENT_DTO_1_SAM.getAge(), result.getAge());
         verify(studentRepositoryMock, times(1)).save(any(Student.class));
+        verify(statsMock, times(1)).onCreated(STUDENT_1_SAM.getAge(), FACULTY_DTO.getId());
+        verify(facultyServiceMock, times(1)).studentsChanged();
 
         assertThrows(ParameterIsNullException.class, () -> out.create(null, FACULTY.getName()));
         assertThrows(ParameterIsNullException.class, () -> out.create(STUDENT_DTO_1_SAM, null));
@@ -60,6 +93,8 @@ class StudentServiceTest {
         assertEquals(STUDENT_DTO_1_SAM.getName(), result.getName());
         assertEquals(STUDENT_DTO_1_SAM.getAge(), result.getAge());
         verify(studentRepositoryMock, times(1)).save(any(Student.class));
+        // findRandom уже учёл студента в счётчиках BALANCED
+        verify(facultyServiceMock, never()).studentsChanged();
 
         assertThrows(ParameterIsNullException.class, () -> out.createWithRandomFaculty(null));
     }
@@ -83,31 +118,112 @@ class StudentServiceTest {
 
     @Test
     void editTest() {
-        when(studentRepositoryMock.save(any(Student.class))).thenReturn(STUDENT_1_SAM);
-        when(studentRepositoryMock.findById(anyLong())).thenReturn(Optional.ofNullable(STUDENT_1_SAM));
+        StudentUpdate update = studentUpdate(18, 4L);
+        when(studentRepositoryMock.updateVersioned(1L, "Sam", 20, null)).thenReturn(Optional.of(update));
 
         StudentDto result = out.edit(STUDENT_DTO_1_SAM);
 
-        assertNotNull(result);
-        assertEquals(STUDENT_DTO_1_SAM.getName(), result.getName());
-        assertEquals(STUDENT_DTO_1_SAM.getAge(), result.getAge());
-        verify(studentRepositoryMock, times(1)).save(any(Student.class));
+        assertEquals(STUDENT_DTO_1_SAM, result);
+        assertEquals(4L, result.getVersion());
+        // одно обновление без предварительных SELECT
+        verify(studentRepositoryMock, never()).findById(anyLong());
+        verify(studentRepositoryMock, never()).save(any(Student.class));
+        verify(statsMock, times(1)).onAgeChanged(18, 20);
 
         assertThrows(ParameterIsNullException.class, () -> out.edit(null));
+        assertThrows(ParameterIsNullException.class, () -> out.edit(new StudentDto(null, "Sam", 20)));
+    }
+
+    @Test
+    void editStaleVersionTest() {
+        StudentDto studentDto = new StudentDto(1L, "Sam", 20, 2L);
+        when(studentRepositoryMock.updateVersioned(1L, "Sam", 20, 2L)).thenReturn(Optional.empty());
+        when(studentRepositoryMock.existsById(1L)).thenReturn(true);
+
+        assertThrows(StaleVersionException.class, () -> out.edit(studentDto));
+
+        when(studentRepositoryMock.existsById(1L)).thenReturn(false);
+        assertThrows(StudentNotFoundException.class, () -> out.edit(studentDto));
+        verify(statsMock, never()).onAgeChanged(any(), any());
     }
 
     @Test
     void deleteTest() {
-        when(studentRepositoryMock.findById(anyLong())).thenReturn(Optional.ofNullable(STUDENT_1_SAM));
+        StudentDeletion deletion = studentDeletion(STUDENT_1_SAM.getAge(), FACULTY.getId());
+        when(studentRepositoryMock.deleteReturning(1L)).thenReturn(Optional.of(deletion));
 
         out.delete(1L);
 
-        verify(studentRepositoryMock, times(1)).findById(anyLong());
+        verify(studentRepositoryMock, never()).findById(anyLong());
+        verify(statsMock, times(1)).onDeleted(STUDENT_1_SAM.getAge(), FACULTY.getId());
+        verify(facultyServiceMock, times(1)).studentsChanged();
+
+        when(studentRepositoryMock.deleteReturning(2L)).thenReturn(Optional.empty());
+        assertThrows(StudentNotFoundException.class, () -> out.delete(2L));
 
         assertThrows(IncorrectIdException.class, () -> out.delete(-1L));
         assertThrows(IncorrectIdException.class, () -> out.delete(0L));
     }
 
+    @Test
+    void moveToFacultyTest() {
+        when(facultyServiceMock.find(2L)).thenReturn(FACULTY_DTO);
+        when(studentRepositoryMock.moveToFaculty(1L, 2L)).thenReturn(3);
+
+        assertEquals(new BulkResultDto(3), out.moveToFaculty(1L, 2L));
+        verify(statsMock, times(1)).onMoved(1L, 2L, 3);
+        verify(facultyServiceMock, times(1)).studentsChanged();
+
+        when(facultyServiceMock.find(5L)).thenThrow(new FacultyNotFoundException("not found"));
+        assertThrows(FacultyNotFoundException.class, () -> out.moveToFaculty(1L, 5L));
+        verify(studentRepositoryMock, never()).moveToFaculty(1L, 5L);
+
+        assertThrows(IncorrectIdException.class, () -> out.moveToFaculty(0L, 2L));
+    }
+
+    @Test
+    void incrementAgesTest() {
+        when(studentRepositoryMock.incrementAges(1, null)).thenReturn(10);
+        when(studentRepositoryMock.incrementAges(2, 1L)).thenReturn(4);
+
+        assertEquals(new BulkResultDto(10), out.incrementAges(1, null));
+        assertEquals(new BulkResultDto(4), out.incrementAges(2, 1L));
+        verify(statsMock, times(1)).onAgesIncremented(10, 1);
+        verify(statsMock, times(1)).onAgesIncremented(4, 2);
+
+        assertThrows(IncorrectAgeException.class, () -> out.incrementAges(0, null));
+        assertThrows(IncorrectIdException.class, () -> out.incrementAges(1, 0L));
+    }
+
+    @Test
+    void deleteAllByIdTest() {
+        when(studentRepositoryMock.deleteAllByIdIn(List.of(1L, 2L, 3L))).thenReturn(2);
+
+        assertEquals(new BulkResultDto(2), out.deleteAllById(List.of(1L, 2L, 3L)));
+        verify(statsMock, times(1)).invalidate();
+
+        assertThrows(IncorrectIdException.class, () -> out.deleteAllById(List.of()));
+        assertThrows(IncorrectIdException.class, () -> out.deleteAllById(List.of(1L, 0L)));
+        List<Long> tooMany = new ArrayList<>();
+        for (long id = 1; id <= KeysetPageDto.MAX_LIMIT + 1; id++) {
+            tooMany.add(id);
+        }
+        assertThrows(IncorrectIdException.class, () -> out.deleteAllById(tooMany));
+    }
+
+    @Test
+    void deleteByFilterTest() {
+        when(studentRepositoryMock.deleteByFilter(1L, null, 20)).thenReturn(0);
+
+        assertEquals(new BulkResultDto(0), out.deleteByFilter(1L, null, 20));
+        // ничего не удалено - снимок статистики остаётся
+        verify(statsMock, never()).invalidate();
+
+        assertThrows(ParameterIsNullException.class, () -> out.deleteByFilter(null, null, null));
+        assertThrows(IncorrectAgeException.class, () -> out.deleteByFilter(null, 0, null));
+        verify(studentRepositoryMock, times(1)).deleteByFilter(any(), any(), any());
+    }
+
     @Test
     void getAllTest() {
         when(studentRepositoryMock.findAll()).thenReturn(List.of(STUDENT_1_SAM));
@@ -119,6 +235,58 @@ class StudentServiceTest {
         verify(studentRepositoryMock, times(1)).findAll();
     }
 
+    @Test
+    void getPageTest() {
+        when(studentRepositoryMock.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(3)))
+                .thenReturn(List.of(STUDENT_1_SAM, STUDENT_2_AARON, STUDENT_3_AARON));
+
+        KeysetPageDto<StudentDto> result = out.getPage(0L, 2);
+
+        assertIterableEquals(List.of(STUDENT_DTO_1_SAM, STUDENT_DTO_2_AARON), result.getContent());
+        assertEquals(STUDENT_DTO_2_AARON.getId(), KeysetPageDto.decodeToken(result.getNextToken()));
+
+        // последняя страница
+        when(studentRepositoryMock.findByIdGreaterThanOrderByIdAsc(2L, Limit.of(3)))
+                .thenReturn(List.of(STUDENT_3_AARON));
+
+        KeysetPageDto<StudentDto> lastPage = out.getPage(2L, 2);
+
+        assertIterableEquals(List.of(STUDENT_DTO_3_AARON), lastPage.getContent());
+        assertNull(lastPage.getNextToken());
+
+        assertThrows(IncorrectPageParameterException.class, () -> out.getPage(-1L, 2));
+        assertThrows(IncorrectPageParameterException.class, () -> out.getPage(0L, 0));
+        assertThrows(IncorrectPageParameterException.class, () -> out.getPage(0L, KeysetPageDto.MAX_LIMIT + 1));
+    }
+
+    @Test
+    void findByAgeBetweenPageTest() {
+        when(studentRepositoryMock.findByAgeBetweenAndIdGreaterThanOrderByIdAsc(5, 50, 0L, Limit.of(2)))
+                .thenReturn(List.of(STUDENT_1_SAM, STUDENT_2_AARON));
+
+        KeysetPageDto<StudentDto> result = out.findByAgeBetweenPage(5, 50, 0L, 1);
+
+        assertIterableEquals(List.of(STUDENT_DTO_1_SAM), result.getContent());
+        assertEquals(STUDENT_DTO_1_SAM.getId(), KeysetPageDto.decodeToken(result.getNextToken()));
+
+        assertThrows(IncorrectAgeException.class, () -> out.findByAgeBetweenPage(0, 50, 0L, 1));
+        assertThrows(IncorrectPageParameterException.class, () -> out.findByAgeBetweenPage(5, 50, 0L, 0));
+    }
+
+    @Test
+    void streamAllTest() {
+        when(studentRepositoryMock.streamAll()).thenReturn(Stream.of(STUDENT_DTO_1_SAM, STUDENT_DTO_2_AARON));
+
+        List<StudentDto> result = new ArrayList<>();
+        out.streamAll(result::add);
+
+        assertIterableEquals(List.of(STUDENT_DTO_1_SAM, STUDENT_DTO_2_AARON), result);
+        verify(studentRepositoryMock, times(1)).streamAll();
+        verify(studentRepositoryMock, never()).findAll();
+
+        assertThrows(ParameterIsNullException.class, () -> out.streamAll(null));
+    }
+
     @Test
     void getAllByAgeTest() {
         when(studentRepositoryMock.findAllByAge(anyInt())).thenReturn(List.of(STUDENT_1_SAM));
@@ -166,27 +334,21 @@ class StudentServiceTest {
 
     @Test
     void findNamesStartsWithAAscUpperCaseTest() {
-        when(studentRepositoryMock.findAll()).thenReturn(List.of(
-                STUDENT_1_SAM,
-                STUDENT_2_AARON,
-                STUDENT_3_AARON,
-                STUDENT_4_DIK,
-                STUDENT_5_ALBERT,
-                STUDENT_6_GENNADIY
-        ));
-
         Collection<String> expected = List.of(
                 STUDENT_DTO_2_AARON.getName().toUpperCase(),
                 STUDENT_DTO_5_ALBERT.getName().toUpperCase()
         );
+        when(studentRepositoryMock.findUpperCaseNamesStartingWithA()).thenReturn(List.copyOf(expected));
+
         Collection<String> actual = out.findNamesStartsWithAAscUpperCase();
 
         assertIterableEquals(expected, actual);
+        verify(studentRepositoryMock, never()).findAll();
     }
 
     @Test
     void findNamesStartsWithAAscUpperCaseWhenThereAreNoStudentsTest() {
-        when(studentRepositoryMock.findAll()).thenReturn(List.of());
+        when(studentRepositoryMock.findUpperCaseNamesStartingWithA()).thenReturn(List.of());
 
         int expectedSize = 0;
         int actualSize = out.findNamesStartsWithAAscUpperCase().size();
@@ -195,77 +357,137 @@ class StudentServiceTest {
     }
 
     @Test
-    void getAvgAgeTest() {
-        List<Student> students = List.of(
-                STUDENT_1_SAM,
-                STUDENT_4_DIK,
-                STUDENT_5_ALBERT
+    void countTest() {
+        when(statsMock.getStats()).thenReturn(new StudentStatsDto(3, 3, 61, Map.of(FACULTY.getId(), 3L)));
+
+        assertEquals(3, out.count());
+        verify(studentRepositoryMock, never()).count();
+    }
+
+    @Test
+    void avgAgeTest() {
+        // четвёртый студент без возраста в среднее не входит
+        when(statsMock.getStats()).thenReturn(new StudentStatsDto(4, 3, 61, Map.of(FACULTY.getId(), 4L)));
+
+        assertEquals(20, out.avgAge());
+        assertEquals(String.format("%.2f", 61 / 3d), out.getAvgAge());
+        verifyNoInteractions(studentRepositoryMock);
+    }
+
+    @Test
+    void getAnalyticsTest() {
+        List<StudentAgeGroup> groups = List.of(
+                ageGroup(20, 1L, 3, 15, 4, 6),
+                ageGroup(30, 2L, 1, 7, 7, 7),
+                ageGroup(20, 2L, 1, 3, 3, 3),
+                ageGroup(null, null, 1, 5, 5, 5)
         );
+        when(studentRepositoryMock.groupByAgeAndFaculty()).thenReturn(groups);
+
+        StudentAnalyticsDto actual = out.getAnalytics();
+
+        assertEquals(6, actual.getCount());
+        assertEquals(Map.of(20, 4L, 30, 1L), actual.getAgeHistogram());
+        assertEquals(Map.of(1L, 3L, 2L, 2L), actual.getStudentsByFaculty());
+        assertEquals(20, actual.getMinAge());
+        assertEquals(30, actual.getMaxAge());
+        assertEquals(22.0, actual.getAverageAge());
+        assertEquals(Map.of("p25", 20, "p50", 20, "p75", 20, "p90", 30, "p99", 30), actual.getAgePercentiles());
+        assertEquals(3, actual.getMinNameLength());
+        assertEquals(7, actual.getMaxNameLength());
+        assertEquals(5.0, actual.getAverageNameLength());
+        verify(studentRepositoryMock, never()).findAll();
+    }
 
-        when(studentRepositoryMock.findAll()).thenReturn(students);
+    @Test
+    void getAnalyticsWhenThereAreNoStudentsTest() {
+        when(studentRepositoryMock.groupByAgeAndFaculty()).thenReturn(List.of());
+
+        StudentAnalyticsDto actual = out.getAnalytics();
+
+        assertEquals(0, actual.getCount());
+        assertTrue(actual.getAgeHistogram().isEmpty());
+        assertNull(actual.getAverageAge());
+        assertNull(actual.getMinNameLength());
+    }
 
-        Double avgAge = students
-                .stream()
-                .mapToDouble(Student::getAge)
-                .average()
-                .getAsDouble();
+    @Test
+    void getAvgAgeTest() {
+        when(statsMock.getStats()).thenReturn(new StudentStatsDto(3, 3, 61, Map.of(FACULTY.getId(), 3L)));
 
-        String expected = String.format("%.2f", avgAge);
+        String expected = String.format("%.2f", 61 / 3d);
         String actual = out.getAvgAge();
 
         assertEquals(expected, actual);
+        verify(studentRepositoryMock, never()).findAll();
     }
 
     @Test
     void getAvgAgeWhenThereAreNoStudentsTest() {
-        when(studentRepositoryMock.findAll()).thenReturn(List.of());
+        when(statsMock.getStats()).thenReturn(new StudentStatsDto(0, 0, 0, Map.of()));
 
         assertThrows(StudentNotFoundException.class, () -> out.getAvgAge());
+        assertThrows(StudentNotFoundException.class, () -> out.avgAge());
     }
 
     @Test
     void printParallelTest() {
-        List<Student> students = List.of(
-                STUDENT_1_SAM,
-                STUDENT_2_AARON,
-                STUDENT_3_AARON,
-                STUDENT_4_DIK,
-                STUDENT_5_ALBERT,
-                STUDENT_6_GENNADIY
-        );
+        when(studentRepositoryMock.findByIdGreaterThanOrderByIdAsc(0, Limit.of(6))).thenReturn(SIX_STUDENTS);
 
-        when(studentRepositoryMock.findAll()).thenReturn(students);
+        List<String> result = out.printParallel();
 
-        out.printParallel();
-        verify(studentRepositoryMock, times(1)).findAll();
+        // первая пара печатается сразу, порядок остальных пар зависит от потоков
+        assertEquals(List.of(STUDENT_1_SAM.getName(), STUDENT_2_AARON.getName()), result.subList(0, 2));
+        assertEquals(Set.copyOf(names(SIX_STUDENTS)), Set.copyOf(result));
+        assertEquals(2, out.getRosterStats().getCompleted());
     }
 
     @Test
     void printParallelNotEnoughStudentsTest() {
-        when(studentRepositoryMock.findAll()).thenReturn(List.of(STUDENT_1_SAM));
+        when(studentRepositoryMock.findByIdGreaterThanOrderByIdAsc(0, Limit.of(6))).thenReturn(List.of(STUDENT_1_SAM));
         assertThrows(RuntimeException.class, () -> out.printParallel());
     }
 
     @Test
     void printSynchronizedTest() {
-        List<Student> students = List.of(
-                STUDENT_1_SAM,
-                STUDENT_2_AARON,
-                STUDENT_3_AARON,
-                STUDENT_4_DIK,
-                STUDENT_5_ALBERT,
-                STUDENT_6_GENNADIY
-        );
-
-        when(studentRepositoryMock.findAll()).thenReturn(students);
+        when(studentRepositoryMock.findByIdGreaterThanOrderByIdAsc(0, Limit.of(6))).thenReturn(SIX_STUDENTS);
 
-        out.printSynchronized();
-        verify(studentRepositoryMock, times(1)).findAll();
+        assertEquals(names(SIX_STUDENTS), out.printSynchronized());
     }
 
     @Test
     void printSynchronizedNotEnoughStudentsTest() {
-        when(studentRepositoryMock.findAll()).thenReturn(List.of(STUDENT_1_SAM));
+        when(studentRepositoryMock.findByIdGreaterThanOrderByIdAsc(0, Limit.of(6))).thenReturn(List.of(STUDENT_1_SAM));
         assertThrows(RuntimeException.class, () -> out.printSynchronized());
     }
-}
\ No newline at end of file
+
+    private static List<String> names(List<Student> students) {
+        return students.stream().map(Student::getName).toList();
+    }
+
+    private static StudentDeletion studentDeletion(Integer age, Long facultyId) {
+        StudentDeletion deletion = mock(StudentDeletion.class);
+        when(deletion.getAge()).thenReturn(age);
+        when(deletion.getFacultyId()).thenReturn(facultyId);
+        return deletion;
+    }
+
+    private static StudentUpdate studentUpdate(Integer oldAge, Long version) {
+        StudentUpdate update = mock(StudentUpdate.class);
+        when(update.getOldAge()).thenReturn(oldAge);
+        when(update.getVersion()).thenReturn(version);
+        return update;
+    }
+
+    private static StudentAgeGroup ageGroup(Integer age, Long facultyId, long count,
+                                            long nameLengthSum, int minNameLength, int maxNameLength) {
+        StudentAgeGroup group = mock(StudentAgeGroup.class);
+        when(group.getAge()).thenReturn(age);
+        when(group.getFacultyId()).thenReturn(facultyId);
+        when(group.getStudentCount()).thenReturn(count);
+        when(group.getNameLengthSum()).thenReturn(nameLengthSum);
+        when(group.getMinNameLength()).thenReturn(minNameLength);
+        when(group.getMaxNameLength()).thenReturn(maxNameLength);
+        return group;
+    }
+}